@@ -0,0 +1,89 @@
+import benchmarks.TaskWorkload;
+
+import javax.swing.*;
+import java.time.LocalDateTime;
+
+// Drives the application classes for the JMH benchmarks (see benchmarks.TaskWorkload for why this
+// class lives in the default package).
+public class TaskBenchmarkWorkload implements TaskWorkload {
+    private static final int INPUTS = 1024; // Pre-built names/dates, so building strings is not measured
+    private static final int VISIBLE_ROWS = 24; // Rows on screen while "scrolling" in renderCell
+
+    private TaskFunctions taskFunctions;
+    private ReminderManager reminderManager;
+    private JList<Task> list;
+    private TaskManagerGui.TaskCellRenderer renderer;
+    private final String[] names = new String[INPUTS];
+    private final String[] dueDates = new String[INPUTS];
+    private int next; // Rotates through the inputs
+    private long seed = 0x2545F4914F6CDD1DL; // xorshift state for picking rows
+    private int top; // First visible row and the row within the viewport painted next (renderCell)
+    private int painted;
+
+    @Override
+    public void setUp(int size) {
+        // Due dates are spread over the coming days, so every task has a pending reminder.
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < INPUTS; i++) {
+            names[i] = "Benchmark task " + i;
+            dueDates[i] = start.plusMinutes(i * 7L).format(Task.formatter);
+        }
+        taskFunctions = new TaskFunctions();
+        for (int i = 0; i < size; i++) {
+            taskFunctions.addTask(names[i % INPUTS], dueDates[(i * 31) % INPUTS]);
+        }
+        // Not started, so no timer thread runs; checkTaskNotifications is called directly instead.
+        reminderManager = new ReminderManager(taskFunctions);
+        // The renderer takes its text from the list's TaskListModel. The model is detached from change
+        // events, so the other benchmarks do not pay for posting list updates to the EDT.
+        TaskListModel model = new TaskListModel(taskFunctions);
+        taskFunctions.removeTaskListener(model);
+        list = new JList<>(model);
+        renderer = new TaskManagerGui.TaskCellRenderer();
+        next = 0;
+    }
+
+    @Override
+    public boolean addTask() {
+        int i = next++ & (INPUTS - 1);
+        return taskFunctions.addTask(names[i], dueDates[i]);
+    }
+
+    @Override
+    public void deleteTask() {
+        taskFunctions.deleteTask(taskFunctions.getTaskAt(randomRow()));
+    }
+
+    @Override
+    public void undoDelete() {
+        taskFunctions.undo();
+    }
+
+    @Override
+    public void toggleComplete() {
+        taskFunctions.toggleComplete(taskFunctions.getTaskAt(randomRow()));
+    }
+
+    @Override
+    public void checkTaskNotifications() {
+        reminderManager.checkTaskNotifications();
+    }
+
+    // Paints the visible rows one by one, then scrolls down a row and paints them all again, like a JList does.
+    @Override
+    public Object renderCell() {
+        int row = top + painted;
+        if (++painted == VISIBLE_ROWS) {
+            painted = 0;
+            top = top + VISIBLE_ROWS < taskFunctions.getTaskCount() ? top + 1 : 0;
+        }
+        return renderer.getListCellRendererComponent(list, taskFunctions.getTaskAt(row), row, (row & 3) == 0, false);
+    }
+
+    private int randomRow() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) ((seed >>> 1) % Math.max(1, taskFunctions.getTaskCount()));
+    }
+}
@@ -0,0 +1,26 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Tasks reloaded before every iteration with one undo batch of them already deleted one at a time, so
+// undoDelete has exactly that much history to restore (the undo log keeps the last 100 changes).
+@State(Scope.Thread)
+public class DeletedTasks {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    public TaskWorkload workload;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        workload = TaskWorkload.create();
+        workload.setUp(size);
+        for (int i = 0; i < TaskFunctionsBenchmark.UNDO_BATCH; i++) {
+            workload.deleteTask();
+        }
+    }
+}
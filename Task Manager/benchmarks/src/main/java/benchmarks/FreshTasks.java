@@ -0,0 +1,23 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Tasks reloaded before every iteration, for operations that grow or shrink the list (add, delete),
+// so each iteration starts again from exactly `size` tasks.
+@State(Scope.Thread)
+public class FreshTasks {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    public TaskWorkload workload;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        workload = TaskWorkload.create();
+        workload.setUp(size);
+    }
+}
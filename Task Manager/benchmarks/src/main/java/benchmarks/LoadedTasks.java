@@ -0,0 +1,22 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Tasks loaded once per trial, for operations that leave the task count unchanged (toggle, render, check).
+@State(Scope.Thread)
+public class LoadedTasks {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    public TaskWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = TaskWorkload.create();
+        workload.setUp(size);
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// TaskFunctions write paths at 1k, 100k and 1M tasks.
+// addTask and toggleComplete run as plain throughput. deleteTask and undoDelete use up what they work on
+// (a small list would run empty within a throughput iteration), so they run as single shots of BATCH calls
+// (UNDO_BATCH for undo) against a freshly loaded list; their score is the time for the whole batch.
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Djava.awt.headless=true"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaskFunctionsBenchmark {
+    static final int BATCH = 500; // Half of the smallest list size
+    static final int UNDO_BATCH = 100; // Everything the undo log holds
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean addTask(FreshTasks tasks) {
+        return tasks.workload.addTask();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void toggleComplete(LoadedTasks tasks) {
+        tasks.workload.toggleComplete();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 10, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    public void deleteTask(FreshTasks tasks) {
+        tasks.workload.deleteTask();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 10, batchSize = UNDO_BATCH)
+    @Measurement(iterations = 20, batchSize = UNDO_BATCH)
+    public void undoDelete(DeletedTasks tasks) {
+        tasks.workload.undoDelete();
+    }
+}
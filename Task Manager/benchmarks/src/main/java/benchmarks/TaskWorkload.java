@@ -0,0 +1,38 @@
+package benchmarks;
+
+// The operations being benchmarked, as seen from the benchmark classes.
+// JMH refuses benchmark classes in the default package, and a named package cannot import the application
+// classes (they live in the default package), so the calls go through this interface. The implementation,
+// TaskBenchmarkWorkload, sits in the default package next to the application and is loaded by name once per
+// setup; the call site only ever sees that one class, so the JIT inlines straight through the interface.
+public interface TaskWorkload {
+    // Builds a fresh TaskFunctions holding `size` tasks, with a ReminderManager and a list renderer attached.
+    void setUp(int size);
+
+    // TaskFunctions.addTask, including LocalDateTime.parse of the due date string.
+    boolean addTask();
+
+    // TaskFunctions.deleteTask of a pseudo-random task.
+    void deleteTask();
+
+    // TaskFunctions.undo, when the most recent change was deleting one task.
+    void undoDelete();
+
+    // TaskFunctions.toggleComplete of a pseudo-random task (the ReminderManager reschedules it each time).
+    void toggleComplete();
+
+    // ReminderManager.checkTaskNotifications with every reminder pending and none due yet.
+    void checkTaskNotifications();
+
+    // TaskCellRenderer.getListCellRendererComponent for the rows of a list being scrolled (a screenful of rows
+    // painted, then the view moves down one row), every 4th row selected.
+    Object renderCell();
+
+    static TaskWorkload create() {
+        try {
+            return (TaskWorkload) Class.forName("TaskBenchmarkWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("TaskBenchmarkWorkload is missing from the classpath", ex);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a bulk add or an import: how many tasks went in, and which rows were rejected and why.
+// Only the first MAX_ERRORS rejected rows are kept (all of them are counted), so a huge bad file
+// cannot fill the heap with error messages.
+public class BatchResult {
+    private static final int MAX_ERRORS = 1000;
+
+    private long addedCount;
+    private long errorCount;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public long getAddedCount() {
+        return addedCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    // The first rejected rows, in the order they were found.
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    void added(long count) {
+        addedCount += count;
+    }
+
+    void error(long row, String message) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(row, message));
+        }
+    }
+
+    // Adds another batch's counts and errors to this one.
+    void include(BatchResult other) {
+        addedCount += other.addedCount;
+        for (RowError error : other.errors) {
+            error(error.getRow(), error.getMessage());
+        }
+        errorCount += other.errorCount - other.errors.size(); // Errors the other batch counted but did not keep
+    }
+
+    public static class RowError {
+        private final long row;
+        private final String message;
+
+        RowError(long row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + row + ": " + message;
+        }
+    }
+}
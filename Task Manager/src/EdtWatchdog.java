@@ -0,0 +1,63 @@
+import java.awt.EventQueue;
+
+// Measures how responsive the Swing event dispatch thread is. Every CHECK_MILLIS a daemon thread posts a
+// heartbeat to the EDT; the time until it runs is recorded as TaskMetrics.EDT_LATENCY. A heartbeat still
+// waiting after STALL_MILLIS is a stall: it is counted, and the EDT's stack is printed once so the culprit
+// (a slow listener, a dialog doing I/O, ...) shows up in the log.
+public class EdtWatchdog implements Runnable {
+    private static final long CHECK_MILLIS = 100;
+    private static final long STALL_MILLIS = 500;
+    private static final int STACK_FRAMES = 12;
+
+    private volatile long postedAt; // nanoTime the pending heartbeat was posted, 0 when none is pending
+    private volatile Thread edt;
+    private boolean reported; // The current stall has been counted and printed (watchdog thread only)
+    private final Runnable heartbeat = this::beat; // One instance, posted over and over
+
+    // Starts watching on a daemon thread.
+    public void start() {
+        Thread thread = new Thread(this, "edt-watchdog");
+        thread.setDaemon(true); // Never keeps the application alive
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Thread.sleep(CHECK_MILLIS);
+                long posted = postedAt;
+                if (posted == 0) {
+                    reported = false;
+                    postedAt = System.nanoTime();
+                    EventQueue.invokeLater(heartbeat);
+                } else if (!reported && System.nanoTime() - posted > STALL_MILLIS * 1_000_000) {
+                    reported = true;
+                    TaskMetrics.edtStalled();
+                    printStack();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // On the EDT.
+    private void beat() {
+        edt = Thread.currentThread();
+        TaskMetrics.EDT_LATENCY.recordSince(postedAt);
+        postedAt = 0;
+    }
+
+    private void printStack() {
+        Thread thread = edt;
+        StringBuilder text = new StringBuilder("EDT stalled for over " + STALL_MILLIS + " ms");
+        if (thread != null) {
+            StackTraceElement[] stack = thread.getStackTrace();
+            for (int i = 0; i < Math.min(STACK_FRAMES, stack.length); i++) {
+                text.append("\n    at ").append(stack[i]);
+            }
+        }
+        System.err.println(text);
+    }
+}
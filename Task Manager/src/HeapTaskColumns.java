@@ -0,0 +1,128 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// The snapshot's columns copied onto the heap: how heap mode holds the saved tasks (see TaskJournal.load).
+// The store uses the rows like those of the mapped file, with a Task view made only for a row that is asked for,
+// so a saved task costs about 26 bytes plus its name instead of a Task object with its index entries (~250 bytes):
+//   ids        long[]    rows are in id order
+//   dues       long[]    due date as an epoch minute
+//   completed  long[]    bitset, one bit per row
+//   nameRefs   int[]     index into `names`, which holds each distinct name once
+//   reminders  char[]    lead time in minutes (at most Task.MAX_REMINDER_MINUTES, so 16 bits are enough)
+//   dueOrder   int[]     rows sorted by due date then id
+// Repeat rules are kept only for the few rows that have one (sorted rows + their rules).
+// Immutable once built.
+public class HeapTaskColumns implements TaskColumns {
+    private final long nextId;
+    private final long[] ids;
+    private final long[] dues;
+    private final long[] completed;
+    private final int[] nameRefs;
+    private final String[] names;
+    private final char[] reminders;
+    private final int[] dueOrder;
+    private final int[] recurringRows;
+    private final long[] recurrences;
+
+    private HeapTaskColumns(long nextId, long[] ids, long[] dues, long[] completed, int[] nameRefs, String[] names,
+                            char[] reminders, int[] dueOrder, int[] recurringRows, long[] recurrences) {
+        this.nextId = nextId;
+        this.ids = ids;
+        this.dues = dues;
+        this.completed = completed;
+        this.nameRefs = nameRefs;
+        this.names = names;
+        this.reminders = reminders;
+        this.dueOrder = dueOrder;
+        this.recurringRows = recurringRows;
+        this.recurrences = recurrences;
+    }
+
+    // Reads every column of the source once. Repeated names end up as one String.
+    public static HeapTaskColumns copyOf(TaskColumns source) {
+        int count = source.size();
+        long[] ids = new long[count];
+        long[] dues = new long[count];
+        long[] completed = new long[(count + 63) >>> 6];
+        int[] nameRefs = new int[count];
+        char[] reminders = new char[count];
+        int[] dueOrder = new int[count];
+        Map<String, Integer> distinct = new HashMap<>(); // Only while copying
+        int[] recurringRows = new int[0];
+        long[] recurrences = new long[0];
+        int recurring = 0;
+        for (int row = 0; row < count; row++) {
+            ids[row] = source.id(row);
+            dues[row] = source.dueMinute(row);
+            if (source.completed(row)) {
+                completed[row >>> 6] |= 1L << row;
+            }
+            Integer ref = distinct.putIfAbsent(source.name(row), distinct.size());
+            nameRefs[row] = ref != null ? ref : distinct.size() - 1;
+            reminders[row] = (char) Math.min(source.reminderMinutes(row), Task.MAX_REMINDER_MINUTES);
+            dueOrder[row] = source.dueOrder(row);
+            long rule = source.recurrence(row);
+            if (rule != 0) {
+                if (recurring == recurringRows.length) {
+                    recurringRows = Arrays.copyOf(recurringRows, Math.max(16, recurring * 2));
+                    recurrences = Arrays.copyOf(recurrences, recurringRows.length);
+                }
+                recurringRows[recurring] = row;
+                recurrences[recurring++] = rule;
+            }
+        }
+        String[] names = new String[distinct.size()];
+        for (Map.Entry<String, Integer> entry : distinct.entrySet()) {
+            names[entry.getValue()] = entry.getKey();
+        }
+        return new HeapTaskColumns(source.getNextId(), ids, dues, completed, nameRefs, names, reminders, dueOrder,
+                Arrays.copyOf(recurringRows, recurring), Arrays.copyOf(recurrences, recurring));
+    }
+
+    @Override
+    public long getNextId() {
+        return nextId;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public long id(int row) {
+        return ids[row];
+    }
+
+    @Override
+    public long dueMinute(int row) {
+        return dues[row];
+    }
+
+    @Override
+    public boolean completed(int row) {
+        return (completed[row >>> 6] & (1L << row)) != 0;
+    }
+
+    @Override
+    public String name(int row) {
+        return names[nameRefs[row]];
+    }
+
+    @Override
+    public long recurrence(int row) {
+        int at = Arrays.binarySearch(recurringRows, row);
+        return at >= 0 ? recurrences[at] : 0;
+    }
+
+    @Override
+    public int reminderMinutes(int row) {
+        return reminders[row];
+    }
+
+    @Override
+    public int dueOrder(int position) {
+        return dueOrder[position];
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latency distribution of one operation, cheap enough to record on every call from any thread.
+// DS: log-linear buckets. Each power of two is split into SUB_BUCKETS equal slices, so a bucket is never wider
+// than 1/8 of its values (percentiles are within 12.5%) and 2^40 ns (about 18 minutes) fits in ~300 counters.
+// record() is a few atomic increments: no lock and no allocation, so it can sit on hot paths under the store's
+// write lock. Readers (JMX, the text dump) walk the counters without stopping writers; a report taken while
+// operations are running may be off by the calls in flight, which does not matter for monitoring.
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40; // Longer values are counted in the last bucket
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Records the time since `startNanos` (a System.nanoTime() reading).
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0; // A clock step; count it as instant rather than lose it
+        }
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public long getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / n / 1000;
+    }
+
+    @Override
+    public long getP50Micros() {
+        return percentile(50) / 1000;
+    }
+
+    @Override
+    public long getP90Micros() {
+        return percentile(90) / 1000;
+    }
+
+    @Override
+    public long getP99Micros() {
+        return percentile(99) / 1000;
+    }
+
+    @Override
+    public long getP999Micros() {
+        return percentile(99.9) / 1000;
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return maxNanos.get() / 1000;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    // Smallest bucket bound that at least `percent` of the recorded values fall under (capped at the max).
+    public long percentile(double percent) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percent / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(upperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    // One line for the text dump, e.g. "addTask  n=120 mean=35us p50=30us p99=90us p99.9=1.2ms max=4.0ms".
+    public String summary() {
+        return String.format("%-18s n=%d mean=%s p50=%s p90=%s p99=%s p99.9=%s max=%s", name, getCount(),
+                format(getCount() == 0 ? 0 : totalNanos.get() / getCount()), format(percentile(50)),
+                format(percentile(90)), format(percentile(99)), format(percentile(99.9)), format(maxNanos.get()));
+    }
+
+    // Nanoseconds in the most readable unit: 850ns, 35us, 1.2ms, 4.0s.
+    static String format(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        } else if (nanos < 1_000_000) {
+            return nanos / 1_000 + "us";
+        } else if (nanos < 1_000_000_000) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.1fs", nanos / 1e9);
+    }
+
+    // Values below SUB_BUCKETS get a bucket each; above that, the top SUB_BITS bits after the leading one
+    // pick the slice of the value's power of two.
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int slice = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + slice;
+    }
+
+    // Largest value that lands in the bucket.
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long slice = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + slice + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,20 @@
+// JMX view of a LatencyHistogram (registered as taskmanager:type=Latency,name=<operation>).
+// Times are in microseconds so they read well in JConsole/VisualVM.
+public interface LatencyHistogramMXBean {
+    long getCount();
+
+    long getMeanMicros();
+
+    long getP50Micros();
+
+    long getP90Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+
+    // Starts a fresh measurement window.
+    void reset();
+}
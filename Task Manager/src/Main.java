@@ -1,22 +1,96 @@
 import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class Main {
     public static void main(String[] args) {
-        TaskFunctions taskFunctions = new TaskFunctions();
-        // Pass the taskFunctions object itself, not a model from it.
-        ReminderManager reminderManager = new ReminderManager(taskFunctions);
-        TaskManagerGui taskManagerGui = new TaskManagerGui(taskFunctions, reminderManager);
+        // Tasks are saved in ~/.taskmanager unless -Dtaskmanager.dir=<folder> is given.
+        String dataDir = System.getProperty("taskmanager.dir",
+                System.getProperty("user.home") + File.separator + ".taskmanager");
+        // -Dtaskmanager.storage=mapped keeps saved tasks in the memory-mapped snapshot instead of the heap.
+        // -Dtaskmanager.storage=shared shares one task list between every instance started that way on the same
+        // folder (see SharedTaskLog); the journal is not used then.
+        String storage = System.getProperty("taskmanager.storage", "");
+        boolean shared = "shared".equals(storage);
+        TaskJournal journal = shared ? null : new TaskJournal(Paths.get(dataDir), "mapped".equals(storage));
+        SharedTaskLog sharedLog = shared ? new SharedTaskLog(Paths.get(dataDir)) : null;
+        TaskFunctions taskFunctions;
+        boolean persistent;
+        try {
+            if (shared) {
+                taskFunctions = new TaskFunctions(sharedLog.load()); // Latest base + changes since
+                sharedLog.attach(taskFunctions); // From now on changes go both ways
+            } else {
+                taskFunctions = new TaskFunctions(journal.load()); // Snapshot + journal tail
+                journal.attach(taskFunctions); // From now on every change is journaled
+            }
+            persistent = true;
+        } catch (IOException ex) {
+            System.err.println("Could not open task storage in " + dataDir + ": " + ex.getMessage());
+            System.err.println("Continuing without saving tasks.");
+            taskFunctions = new TaskFunctions();
+            persistent = false;
+        }
+        final boolean saveOnExit = persistent;
+
+        // -Dtaskmanager.server=<port> runs headless: no window, a local HTTP API instead (see TaskServer),
+        // with reminders streamed to its clients rather than shown as dialogs.
+        Integer serverPort = Integer.getInteger("taskmanager.server");
+        ReminderManager reminderManager;
+        TaskServer taskServer = null;
+        if (serverPort != null) {
+            ReminderFeed reminderFeed = new ReminderFeed();
+            reminderManager = new ReminderManager(taskFunctions, reminderFeed);
+            try {
+                taskServer = new TaskServer(taskFunctions, reminderFeed, serverPort);
+            } catch (IOException ex) {
+                System.err.println("Could not start the task server on port " + serverPort + ": " + ex.getMessage());
+                System.exit(1);
+            }
+            taskServer.start();
+            System.out.println("Task server listening on http://localhost:" + taskServer.getPort() + "/tasks");
+            reminderManager.start();
+        } else {
+            // Pass the taskFunctions object itself, not a model from it.
+            reminderManager = new ReminderManager(taskFunctions);
+            TaskManagerGui taskManagerGui = new TaskManagerGui(taskFunctions, reminderManager);
+
+            reminderManager.start();
 
-        reminderManager.start();
+            SwingUtilities.invokeLater(taskManagerGui::display);
+            new EdtWatchdog().start();
+        }
 
-        SwingUtilities.invokeLater(taskManagerGui::display);
+        // Metrics: always in JMX (JConsole/VisualVM, domain "taskmanager"); also printed every N seconds
+        // with -Dtaskmanager.metrics.dump=N.
+        TaskMetrics.registerMBeans();
+        long dumpSeconds = Long.getLong("taskmanager.metrics.dump", 0);
+        if (dumpSeconds > 0) {
+            TaskMetrics.startDump(dumpSeconds);
+        }
+        final TaskServer server = taskServer;
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutting down application...");
+            if (server != null) {
+                server.stop();
+                System.out.println("Task server stopped.");
+            }
             if (reminderManager != null) {
                 reminderManager.stop();
                 System.out.println("Reminder service stopped.");
             }
+            if (saveOnExit && sharedLog != null) {
+                sharedLog.close();
+                System.out.println("Shared task log closed.");
+            } else if (saveOnExit) {
+                journal.close(); // Flush and fsync whatever is still queued
+                System.out.println("Task journal closed.");
+            }
+            if (dumpSeconds > 0) {
+                System.out.print(TaskMetrics.report()); // Final numbers for the whole run
+            }
         }));
     }
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Columnar snapshot file, read through a memory mapping.
+// Each field is stored as its own column so a single value can be read without decoding a whole task:
+//   header       magic, version, journal generation, next id, row count
+//   ids          long[count]       rows are in id order
+//   due          long[count]       due date as epoch minutes (Task.toEpochMinute); a recurring task's next one
+//   completed    long[words]       bitset, one bit per row
+//   recurrence   long[count]       repeat rule (Recurrence.toBits), 0 for a one-off task
+//   nameOffsets  int[count + 1]    where each row's name starts in the name blob
+//   dueOrder     int[count]        rows sorted by due date then id (the due date index, prebuilt)
+//   reminders    int[count]        reminder lead time in minutes
+//   names        byte[]            all names as UTF-8, back to back
+// The mapping is paged in by the OS on demand; opening the file only reads the offset columns once to check them
+// (8 bytes per task), everything else is read when it is asked for.
+// In heap mode the columns are copied out of the mapping once instead (HeapTaskColumns).
+public class MappedTaskSnapshot implements TaskColumns {
+    private static final int MAGIC = 0x54534B53; // "TSKS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private final ByteBuffer buffer;
+    private final long generation;
+    private final long nextId;
+    private final int count;
+    // Byte offsets of the columns inside the buffer
+    private final int idsAt;
+    private final int dueAt;
+    private final int completedAt;
+    private final int recurrencesAt;
+    private final int nameOffsetsAt;
+    private final int dueOrderAt;
+    private final int remindersAt;
+    private final int namesAt;
+
+    private MappedTaskSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Unrecognized snapshot file");
+        }
+        generation = buffer.getLong(8);
+        nextId = buffer.getLong(16);
+        count = buffer.getInt(24);
+        // Everything but the names: 36 bytes per row, the completed bits and the final name offset
+        if (count < 0 || HEADER_BYTES + 36L * count + 8L * words(count) + 4 > buffer.capacity()) {
+            throw new IOException("Truncated snapshot file");
+        }
+        idsAt = HEADER_BYTES;
+        dueAt = idsAt + 8 * count;
+        completedAt = dueAt + 8 * count;
+        recurrencesAt = completedAt + 8 * words(count);
+        nameOffsetsAt = recurrencesAt + 8 * count;
+        dueOrderAt = nameOffsetsAt + 4 * (count + 1);
+        remindersAt = dueOrderAt + 4 * count;
+        namesAt = remindersAt + 4 * count;
+        checkOffsets();
+    }
+
+    // Maps the file read-only. The mapping stays valid after the file is replaced by a newer snapshot.
+    public static MappedTaskSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB cannot be mapped: " + file);
+            }
+            return new MappedTaskSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Writes a snapshot. Rows must be in id order; dueOrder lists them sorted by due date then id.
+    // The file is fsynced before returning.
+    public static void write(Path file, long generation, long nextId, long[] ids, long[] dueMinutes,
+                             boolean[] completed, List<Task> tasks, int[] dueOrder) throws IOException {
+        int count = ids.length;
+        byte[][] names = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            names[i] = tasks.get(i).getName().getBytes(StandardCharsets.UTF_8);
+        }
+
+        try (FileOutputStream stream = new FileOutputStream(file.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeLong(nextId);
+            out.writeInt(count);
+            out.writeInt(0); // Padding keeps the long columns 8-byte aligned
+            for (long id : ids) {
+                out.writeLong(id);
+            }
+            for (long due : dueMinutes) {
+                out.writeLong(due);
+            }
+            for (int word = 0; word < words(count); word++) {
+                long bits = 0;
+                for (int bit = 0; bit < 64 && word * 64 + bit < count; bit++) {
+                    if (completed[word * 64 + bit]) {
+                        bits |= 1L << bit;
+                    }
+                }
+                out.writeLong(bits);
+            }
+            for (Task task : tasks) {
+                Recurrence rule = task.getRecurrence(); // Fixed at creation like the name
+                out.writeLong(rule == null ? 0 : rule.toBits());
+            }
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] name : names) {
+                offset += name.length;
+                out.writeInt(offset);
+            }
+            for (int row : dueOrder) {
+                out.writeInt(row);
+            }
+            for (Task task : tasks) {
+                out.writeInt(task.getReminderMinutes()); // Fixed at creation, so read from the task like the name
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public long getNextId() {
+        return nextId;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public long id(int row) {
+        return buffer.getLong(idsAt + 8 * row);
+    }
+
+    @Override
+    public long dueMinute(int row) {
+        return buffer.getLong(dueAt + 8 * row);
+    }
+
+    @Override
+    public boolean completed(int row) {
+        return (buffer.getLong(completedAt + 8 * (row >>> 6)) & (1L << row)) != 0;
+    }
+
+    @Override
+    public String name(int row) {
+        int start = nameOffset(row);
+        byte[] bytes = new byte[nameOffset(row + 1) - start];
+        ByteBuffer slice = buffer.duplicate(); // Positioned copy; the shared buffer is never moved
+        slice.position(namesAt + start);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long recurrence(int row) {
+        return buffer.getLong(recurrencesAt + 8 * row);
+    }
+
+    @Override
+    public int reminderMinutes(int row) {
+        return buffer.getInt(remindersAt + 4 * row);
+    }
+
+    @Override
+    public int dueOrder(int position) {
+        return buffer.getInt(dueOrderAt + 4 * position);
+    }
+
+    // One pass over the offset columns, so a damaged file fails here with an IOException rather than later with
+    // an IndexOutOfBoundsException on some row: every name must lie inside the file, the last one ending at its
+    // end, and the due date order may only list real rows.
+    private void checkOffsets() throws IOException {
+        int previous = 0;
+        for (int row = 0; row <= count; row++) {
+            int offset = nameOffset(row);
+            if (offset < previous || (row == 0 && offset != 0)) {
+                throw new IOException("Corrupt snapshot file: bad name offset in row " + row);
+            }
+            previous = offset;
+        }
+        if (namesAt + (long) previous != buffer.capacity()) {
+            throw new IOException("Truncated snapshot file");
+        }
+        for (int position = 0; position < count; position++) {
+            int row = dueOrder(position);
+            if (row < 0 || row >= count) {
+                throw new IOException("Corrupt snapshot file: bad row in the due date order");
+            }
+        }
+    }
+
+    private int nameOffset(int row) {
+        return buffer.getInt(nameOffsetsAt + 4 * row);
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+}
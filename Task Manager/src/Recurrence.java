@@ -0,0 +1,267 @@
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+// Repeat rule of a recurring task: every N minutes, days or weeks (weeks optionally on chosen weekdays),
+// optionally until an end date. Immutable.
+//
+// A recurring task is still one Task: its due date is the next open occurrence, and completing it moves the
+// due date on to the occurrence after that (see TaskFunctions.toggleComplete). Occurrences are never stored;
+// next() and atOrAfter() work them out on demand, e.g. for a range query or the reminder engine's next deadline.
+//
+// Text form (what the add dialog, the import files and the API accept, case-insensitive):
+//   every 30 minutes | every day | every 2 days | every week | every 2 weeks on mon,thu | daily | weekly | weekdays
+// each optionally followed by "until yyyy-MM-dd HH:mm". toString() gives the same form back.
+// For storage the rule packs into one long (toBits), 0 meaning "does not repeat".
+public final class Recurrence {
+    private static final int MINUTES = 1;
+    private static final int DAYS = 2;
+    private static final int WEEKS = 3;
+    public static final int MAX_INTERVAL = 9999;
+    private static final int WEEKDAYS = 0x1F; // Monday to Friday (bit 0 = Monday)
+    private static final String[] DAY_NAMES = {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
+    private static final long NO_END = Long.MAX_VALUE;
+
+    private final int unit;
+    private final int interval;
+    private final int days; // WEEKS only: bitset of the weekdays it falls on (bit 0 = Monday); 0 = the start's
+    private final long untilMinute; // Last possible occurrence as an epoch minute (Task.toEpochMinute), or NO_END
+
+    private Recurrence(int unit, int interval, int days, long untilMinute) {
+        this.unit = unit;
+        this.interval = interval;
+        this.days = days;
+        this.untilMinute = untilMinute;
+    }
+
+    // Parses the text form. Null or blank (also "none"/"once") means no repetition and gives null.
+    public static Recurrence parse(String text) {
+        String rule = text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        if (rule.isEmpty() || rule.equals("none") || rule.equals("once")) {
+            return null;
+        }
+        long until = NO_END;
+        int at = rule.indexOf(" until ");
+        if (at >= 0) {
+            String end = rule.substring(at + 7);
+            rule = rule.substring(0, at);
+            try {
+                until = Task.toEpochMinute(LocalDateTime.parse(end, Task.formatter));
+            } catch (DateTimeParseException ex) {
+                throw new IllegalArgumentException("Invalid end date \"" + end + "\", expected yyyy-MM-dd HH:mm");
+            }
+            if (until < 0 || until >= 1L << 38) {
+                throw new IllegalArgumentException("End date out of range: " + end);
+            }
+        }
+        int days = 0;
+        at = rule.indexOf(" on ");
+        if (at >= 0) {
+            days = parseDays(rule.substring(at + 4));
+            rule = rule.substring(0, at);
+        }
+
+        int unit;
+        int interval = 1;
+        switch (rule) {
+            case "daily":
+                unit = DAYS;
+                break;
+            case "weekly":
+                unit = WEEKS;
+                break;
+            case "weekdays":
+                if (days != 0) {
+                    throw new IllegalArgumentException("\"weekdays\" already says which days");
+                }
+                unit = WEEKS;
+                days = WEEKDAYS;
+                break;
+            default:
+                String[] words = rule.split(" ");
+                if (words.length < 2 || words.length > 3 || !words[0].equals("every")) {
+                    throw new IllegalArgumentException("Invalid repeat rule \"" + text.trim()
+                            + "\", expected e.g. \"every day\", \"every 2 weeks on mon,thu\" or \"weekdays\"");
+                }
+                if (words.length == 3) {
+                    try {
+                        interval = Integer.parseInt(words[1]);
+                    } catch (NumberFormatException ex) {
+                        throw new IllegalArgumentException("Invalid repeat interval \"" + words[1] + "\"");
+                    }
+                    if (interval < 1 || interval > MAX_INTERVAL) {
+                        throw new IllegalArgumentException("Repeat interval must be 1 to " + MAX_INTERVAL);
+                    }
+                }
+                unit = parseUnit(words[words.length - 1]);
+        }
+        if (days != 0 && unit != WEEKS) {
+            throw new IllegalArgumentException("Weekdays (\"on ...\") only go with weekly rules");
+        }
+        return new Recurrence(unit, interval, days, until);
+    }
+
+    // Rule from its packed form (see toBits); null for 0.
+    public static Recurrence fromBits(long bits) {
+        if (bits == 0) {
+            return null;
+        }
+        long until = bits >>> 25;
+        return new Recurrence((int) (bits & 3), (int) (bits >>> 9) & 0xFFFF, (int) (bits >>> 2) & 0x7F,
+                until == 0 ? NO_END : until - 1);
+    }
+
+    // Packs the rule into one long, never 0:
+    //   bits 0-1 unit, 2-8 weekdays, 9-24 interval, 25-63 end minute + 1 (0 = no end)
+    public long toBits() {
+        long until = untilMinute == NO_END ? 0 : untilMinute + 1;
+        return unit | (long) days << 2 | (long) interval << 9 | until << 25;
+    }
+
+    // The first occurrence of a series that starts at the given time: the time itself, or for rules on chosen
+    // weekdays the first of those days on or after it. Null if that is past the end date.
+    public LocalDateTime first(LocalDateTime start) {
+        LocalDateTime occurrence = start;
+        if (days != 0 && !fallsOn(occurrence)) {
+            occurrence = next(occurrence);
+        }
+        return within(occurrence);
+    }
+
+    // The occurrence after the given one, or null once the series has ended.
+    public LocalDateTime next(LocalDateTime occurrence) {
+        if (occurrence == null) {
+            return null;
+        }
+        LocalDateTime next;
+        if (unit == MINUTES) {
+            next = occurrence.plusMinutes(interval);
+        } else if (unit == DAYS) {
+            next = occurrence.plusDays(interval);
+        } else if (days == 0) {
+            next = occurrence.plusWeeks(interval);
+        } else {
+            next = occurrence;
+            do {
+                next = next.plusDays(1);
+                if (next.getDayOfWeek() == DayOfWeek.MONDAY && interval > 1) {
+                    next = next.plusWeeks(interval - 1); // Weeks in between are skipped
+                }
+            } while (!fallsOn(next)); // At most 7 steps: at least one day is set
+        }
+        return within(next);
+    }
+
+    // The first occurrence, counting from the given one, that is not before `time`; null if the series ends
+    // first. Jumps straight to it instead of stepping through every occurrence in between.
+    public LocalDateTime atOrAfter(LocalDateTime occurrence, LocalDateTime time) {
+        if (occurrence == null || !occurrence.isBefore(time)) {
+            return occurrence;
+        }
+        long gap = Task.toEpochMinute(time) - Task.toEpochMinute(occurrence);
+        long period = periodMinutes();
+        LocalDateTime candidate = occurrence.plusMinutes(gap / period * period); // Whole periods: still in step
+        if (candidate.isAfter(getUntilOrMax())) {
+            return null;
+        }
+        while (candidate != null && candidate.isBefore(time)) {
+            candidate = next(candidate);
+        }
+        return candidate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        if (unit == WEEKS && days == WEEKDAYS && interval == 1) {
+            text.append("weekdays");
+        } else {
+            text.append("every ");
+            if (interval > 1) {
+                text.append(interval).append(' ');
+            }
+            text.append(unit == MINUTES ? "minute" : unit == DAYS ? "day" : "week");
+            if (interval > 1) {
+                text.append('s');
+            }
+            if (days != 0) {
+                text.append(" on ");
+                String separator = "";
+                for (int day = 0; day < 7; day++) {
+                    if ((days & 1 << day) != 0) {
+                        text.append(separator).append(DAY_NAMES[day]);
+                        separator = ",";
+                    }
+                }
+            }
+        }
+        if (untilMinute != NO_END) {
+            text.append(" until ").append(Task.fromEpochMinute(untilMinute).format(Task.formatter));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Recurrence && ((Recurrence) o).toBits() == toBits();
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(toBits());
+    }
+
+    // ------------ Helpers ------------
+
+    private boolean fallsOn(LocalDateTime time) {
+        return (days & 1 << (time.getDayOfWeek().getValue() - 1)) != 0;
+    }
+
+    private LocalDateTime within(LocalDateTime occurrence) {
+        return occurrence == null || Task.toEpochMinute(occurrence) > untilMinute ? null : occurrence;
+    }
+
+    private LocalDateTime getUntilOrMax() {
+        return untilMinute == NO_END ? LocalDateTime.MAX : Task.fromEpochMinute(untilMinute);
+    }
+
+    // Length of one repeat of the whole pattern, in minutes
+    private long periodMinutes() {
+        return unit == MINUTES ? interval : unit == DAYS ? interval * 1440L : interval * 10080L;
+    }
+
+    private static int parseUnit(String word) {
+        switch (word) {
+            case "minute":
+            case "minutes":
+                return MINUTES;
+            case "day":
+            case "days":
+                return DAYS;
+            case "week":
+            case "weeks":
+                return WEEKS;
+            default:
+                throw new IllegalArgumentException("Invalid repeat unit \"" + word + "\", expected minutes, days or weeks");
+        }
+    }
+
+    private static int parseDays(String list) {
+        int days = 0;
+        for (String name : list.split(",")) {
+            String day = name.trim();
+            int index = -1;
+            for (int i = 0; i < DAY_NAMES.length; i++) {
+                if (day.length() >= 3 && DAY_NAMES[i].equals(day.substring(0, 3))) {
+                    index = i;
+                }
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("Invalid weekday \"" + day + "\", expected mon, tue, ... sun");
+            }
+            days |= 1 << index;
+        }
+        return days;
+    }
+}
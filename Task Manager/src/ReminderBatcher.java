@@ -0,0 +1,88 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Delivery stage between ReminderManager and a sink that is slow or disruptive per call (the GUI's panel):
+// - Coalescing: reminders arriving within WINDOW_MILLIS of the first one go out as one batch, so a few hundred
+//   tasks sharing a deadline become a single notification instead of a few hundred.
+// - Rate limiting: batches are at least MIN_INTERVAL_MILLIS apart; whatever comes due meanwhile joins the next.
+// - Back-pressure: one batch is delivered at a time, on its own thread. While the sink is busy (e.g. waiting for
+//   a stalled EDT) reminders pile up into the next batch instead of into the EDT's event queue, and past
+//   MAX_PENDING further reminders are dropped and counted (TaskMetrics "remindersDropped").
+// The scheduler thread only appends to a list here, so it is never held up by delivery.
+public class ReminderBatcher implements ReminderSink {
+    private static final long WINDOW_MILLIS = 250;
+    private static final long MIN_INTERVAL_MILLIS = 1000;
+    private static final int MAX_PENDING = 10_000;
+
+    private final ReminderSink downstream;
+    // Reminders waiting for the next batch, in arrival order
+    private final List<Task> pending;
+    private ScheduledExecutorService deliverer; // Started on the first reminder
+    private boolean flushScheduled;
+    private boolean delivering;
+    private long lastDelivered = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(MIN_INTERVAL_MILLIS);
+
+    public ReminderBatcher(ReminderSink downstream) {
+        this.downstream = downstream;
+        this.pending = new ArrayList<>();
+    }
+
+    @Override
+    public synchronized void remind(List<Task> tasks) {
+        int room = MAX_PENDING - pending.size();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i < room) {
+                pending.add(tasks.get(i));
+            } else {
+                TaskMetrics.reminderDropped();
+            }
+        }
+        if (!flushScheduled && !delivering && !pending.isEmpty()) {
+            // Gather whatever else comes due in the window, and keep to the rate limit
+            long sinceLast = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastDelivered);
+            scheduleFlush(Math.max(WINDOW_MILLIS, MIN_INTERVAL_MILLIS - sinceLast));
+        }
+    }
+
+    // Delivery thread: hands the batch over and waits for the sink, then schedules the next batch (if any
+    // reminders came in meanwhile) no sooner than the rate limit allows.
+    private void flush() {
+        List<Task> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            delivering = true;
+        }
+        try {
+            if (!batch.isEmpty()) {
+                downstream.remind(batch);
+            }
+        } catch (RuntimeException ex) {
+            System.err.println("Reminder delivery failed: " + ex.getMessage());
+        } finally {
+            synchronized (this) {
+                delivering = false;
+                lastDelivered = System.nanoTime();
+                if (!pending.isEmpty()) {
+                    scheduleFlush(MIN_INTERVAL_MILLIS);
+                }
+            }
+        }
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        if (deliverer == null) {
+            deliverer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "reminder-delivery");
+                thread.setDaemon(true); // Never keeps the application alive
+                return thread;
+            });
+        }
+        flushScheduled = true;
+        deliverer.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reminder delivery for the headless server: every connected client of GET /reminders gets each reminder as a
+// Server-Sent Event:
+//   event: reminder
+//   data: {"id": 7, "name": "Pay rent", "due": "2025-01-31 09:00", "completed": false, "remind": 10}
+// Each client has its own bounded queue, drained by that client's request thread, so the reminder scheduler
+// never waits on a slow network connection. A client that falls QUEUE_CAPACITY reminders behind loses the
+// newest ones (counted in getDropped()) rather than holding memory without bound. Reminders that come due
+// while no client is connected are not kept.
+public class ReminderFeed implements ReminderSink {
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final long KEEPALIVE_SECONDS = 15; // Comment line sent when idle; also detects gone clients
+
+    // DS: one queue per connected client. Copy-on-write: clients come and go rarely, reminders are broadcast.
+    private final List<BlockingQueue<Task>> clients;
+    private final AtomicLong dropped;
+
+    public ReminderFeed() {
+        this.clients = new CopyOnWriteArrayList<>();
+        this.dropped = new AtomicLong();
+    }
+
+    @Override
+    public void remind(List<Task> tasks) {
+        for (BlockingQueue<Task> queue : clients) {
+            for (Task task : tasks) {
+                if (!queue.offer(task)) {
+                    dropped.incrementAndGet();
+                    TaskMetrics.reminderDropped();
+                }
+            }
+        }
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Streams reminders to one client until it disconnects (a write fails) or the thread is interrupted.
+    public void stream(Writer out) throws IOException {
+        BlockingQueue<Task> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        clients.add(queue);
+        try {
+            out.write(": connected\n\n");
+            out.flush();
+            while (true) {
+                Task task = queue.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                if (task == null) {
+                    out.write(": keepalive\n\n");
+                } else {
+                    out.write("event: reminder\ndata: ");
+                    TaskServer.writeTask(out, task);
+                    out.write("\n\n");
+                }
+                out.flush();
+                if (task != null) {
+                    ReminderManager.delivered(task);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(queue);
+        }
+    }
+}
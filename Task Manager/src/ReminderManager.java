@@ -1,55 +1,287 @@
-import javax.swing.*;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
-public class ReminderManager {
-    private static final int NOTIFY_BEFORE_MINUTES = 10;
-    // DS #3: Queue to manage notified tasks in a FIFO (First-In, First-Out) manner.
-    private final Queue<Task> notifiedTasks;
-    private ScheduledExecutorService scheduler;
+// Only the reminders of the next few days are held: the tasks due before `loadedTo`. Once a day (a week of lead
+// time before `loadedTo`) the next day is read from the due date index, so memory follows the tasks due soon,
+// not every task with a reminder (with a million saved tasks most of them are never even made into Tasks).
+public class ReminderManager implements TaskListener {
+    // Deadlines up to this far ahead are loaded: the longest lead time plus a day before the next load
+    private static final int WINDOW_MINUTES = Task.MAX_REMINDER_MINUTES + 24 * 60;
+    // DS #3: PriorityQueue (min-heap) of pending reminders ordered by notify time.
+    // The head is always the next reminder to fire, so add/cancel cost O(log n) instead of a full scan.
+    // A recurring task has one entry, for its next deadline; the one after is queued when that one comes up.
+    private final PriorityQueue<Reminder> reminders;
+    // The live reminder of each task, so deletes/toggles can cancel it without searching the heap.
+    private final Map<Task, Reminder> pending;
+    private int cancelledCount; // Cancelled entries still sitting in the heap (purged lazily)
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextRun; // The single timer, armed for the head of the queue
+    private LocalDateTime armedFor; // Notify time the timer is currently armed for
+    // Every open deadline before this has its reminder queued (or shown); later ones are loaded as time goes on
+    private LocalDateTime loadedTo;
+    private boolean started;
     private TaskFunctions taskFunctionsRef;
+    private final ReminderSink sink; // The reminder panel in the GUI, the event feed in server mode
+    private final Clock clock; // What "now" is; the system clock except in tests
 
+    // Shows reminders in the GUI's reminder panel, batched and rate-limited by a ReminderBatcher.
     public ReminderManager(TaskFunctions taskFunctions) {
+        this(taskFunctions, new ReminderBatcher(new ReminderPanel()));
+    }
+
+    public ReminderManager(TaskFunctions taskFunctions, ReminderSink sink) {
+        this(taskFunctions, sink, Clock.systemDefaultZone());
+    }
+
+    // Package-private so tests can move time along.
+    ReminderManager(TaskFunctions taskFunctions, ReminderSink sink, Clock clock) {
         this.taskFunctionsRef = taskFunctions;
-        // A LinkedList can be used as a Queue.
-        this.notifiedTasks = new LinkedList<>();
+        this.sink = sink;
+        this.clock = clock;
+        this.reminders = new PriorityQueue<>();
+        this.pending = new HashMap<>(); // Keyed by the task's stable id (Task.equals/hashCode)
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        // Keep up to date through change notifications, then load the first window. A change notified before the
+        // load is ignored (its deadline is not before `loadedTo` yet) and the load sees it in the store instead.
+        LocalDateTime now = LocalDateTime.now(clock);
+        this.loadedTo = now;
+        taskFunctionsRef.addTaskListener(this);
+        load(now);
     }
 
-    public void start() {
-        scheduler.scheduleAtFixedRate(this::checkTaskNotifications, 0, 1, TimeUnit.MINUTES);
+    public synchronized void start() {
+        started = true;
+        armTimer();
     }
 
-    private void checkTaskNotifications() {
-        LocalDateTime now = LocalDateTime.now();
-        List<Task> currentTasks = taskFunctionsRef.getTasks();
+    // Fires every reminder whose notify time has been reached, then re-arms the timer for the next one.
+    // Package-private so the benchmarks and tests can call it without a running timer.
+    // Timed into TaskMetrics.REMINDER_CHECK; each reminder shown records its lag.
+    void checkTaskNotifications() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Task> dueTasks = new ArrayList<>();
+        if (!now.isBefore(loadAt())) {
+            load(now); // Before taking the lock: the load takes the task lock first, as change notifications do
+        }
 
-        // Check for new tasks that need a notification.
-        for (Task task : currentTasks) {
-            if (!notifiedTasks.contains(task) && !task.isCompleted()) {
-                LocalDateTime notifyTime = task.getDueDate().minusMinutes(NOTIFY_BEFORE_MINUTES);
-                if (!now.isBefore(notifyTime) && now.isBefore(task.getDueDate())) {
-                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null,
-                            "Reminder: Task \"" + task.getName() + "\" is due.",
-                            "Task Due Soon",
-                            JOptionPane.WARNING_MESSAGE));
-                    notifiedTasks.offer(task); // Add to the back of the queue.
+        synchronized (this) {
+            if (nextRun != null) {
+                nextRun.cancel(false); // Drop a timer re-armed while this run was waiting for the lock
+            }
+            nextRun = null;
+            armedFor = null;
+            Reminder head;
+            while ((head = reminders.peek()) != null && !now.isBefore(head.notifyTime)) {
+                reminders.poll(); // Remove from the front of the queue.
+                if (head.cancelled) {
+                    cancelledCount--;
+                    continue;
+                }
+                pending.remove(head.task);
+                // A reminder that comes up after the deadline has passed is dropped, as before.
+                if (now.isBefore(head.due)) {
+                    dueTasks.add(head.task.occurrence(head.due));
+                } else {
+                    TaskMetrics.reminderMissed();
                 }
+                if (head.task.isRecurring()) {
+                    LocalDateTime next = head.task.getRecurrence().next(head.due);
+                    if (next != null && next.isBefore(loadedTo)) { // Otherwise a later load queues it
+                        queue(head.task, next);
+                    }
+                }
+            }
+            armTimer();
+        }
+
+        if (!dueTasks.isEmpty()) {
+            sink.remind(dueTasks); // Outside the lock: the sink may take a moment to hand them off
+        }
+        TaskMetrics.REMINDER_CHECK.recordSince(start);
+    }
+
+    // Queues the reminders of the deadlines from `loadedTo` (or now, if that has passed) up to a window ahead,
+    // read from the due date index under the task read lock, so no change gets in between.
+    private void load(LocalDateTime now) {
+        LocalDateTime from;
+        synchronized (this) {
+            from = loadedTo.isAfter(now) ? loadedTo : now;
+        }
+        LocalDateTime to = now.plusMinutes(WINDOW_MINUTES);
+        taskFunctionsRef.readOpenDueBetween(from, to, tasks -> extend(tasks, from, to));
+    }
+
+    private synchronized void extend(List<Task> tasks, LocalDateTime from, LocalDateTime to) {
+        for (Task task : tasks) {
+            if (!task.isRecurring()) {
+                queue(task, task.getDueDate());
+            } else if (!pending.containsKey(task)) { // Queued already: its next occurrence follows when it fires
+                queue(task, task.getRecurrence().atOrAfter(task.getDueDate(), from));
+            }
+        }
+        loadedTo = to;
+        armTimer();
+    }
+
+    // When the next window has to be loaded: a full lead time before the loaded deadlines run out
+    private synchronized LocalDateTime loadAt() {
+        return loadedTo.minusMinutes(Task.MAX_REMINDER_MINUTES);
+    }
+
+    // Called by sinks when a reminder reaches the user. Records the lag: that moment minus when the reminder
+    // was due to be shown (covers the timer, the check and the sink's own delivery, e.g. waiting for the EDT).
+    static void delivered(Task task) {
+        LocalDateTime notifyTime = task.getDueDate().minusMinutes(task.getReminderMinutes());
+        TaskMetrics.REMINDER_LAG.record(Duration.between(notifyTime, LocalDateTime.now()).toNanos());
+        TaskMetrics.reminderFired();
+    }
+
+    public synchronized void stop() {
+        started = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public synchronized void taskAdded(Task task, int index) {
+        schedule(task, LocalDateTime.now(clock));
+        armTimer();
+    }
+
+    // Bulk add (import, undo of a bulk delete): queue them all, then arm the timer once.
+    @Override
+    public synchronized void tasksAdded(List<Task> tasks, int[] indexes) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (Task task : tasks) {
+            schedule(task, now);
+        }
+        armTimer();
+    }
+
+    @Override
+    public synchronized void taskRemoved(Task task, int index) {
+        cancel(task);
+    }
+
+    // Bulk delete: cancel them all under one lock.
+    @Override
+    public synchronized void tasksRemoved(List<Task> tasks, int[] indexes) {
+        for (Task task : tasks) {
+            cancel(task);
+        }
+    }
+
+    @Override
+    public synchronized void taskUpdated(Task task, int index) {
+        cancel(task);
+        schedule(task, LocalDateTime.now(clock));
+        armTimer();
+    }
+
+    // Queues a reminder for the task, its own lead time before the deadline, unless it is completed, already
+    // past its deadline, has no reminder (lead time 0), or the deadline is beyond the loaded window (the load
+    // that reaches it queues it). For a recurring task the deadline is its first occurrence still to come
+    // (missed ones are skipped).
+    private void schedule(Task task, LocalDateTime now) {
+        if (task.isCompleted()) {
+            return;
+        }
+        LocalDateTime due = task.getDueDate();
+        if (task.isRecurring()) {
+            due = task.getRecurrence().atOrAfter(due, now);
+            if (due != null && !now.isBefore(due)) {
+                due = task.getRecurrence().next(due);
             }
         }
+        if (due != null && now.isBefore(due) && due.isBefore(loadedTo)) {
+            queue(task, due);
+        }
+    }
+
+    private void queue(Task task, LocalDateTime due) {
+        int leadMinutes = task.getReminderMinutes();
+        if (leadMinutes == 0 || due == null) {
+            return;
+        }
+        Reminder reminder = new Reminder(task, due, due.minusMinutes(leadMinutes));
+        pending.put(task, reminder);
+        reminders.offer(reminder);
+    }
 
-        // Clean up the queue: remove tasks that are past their due date.
-        while (notifiedTasks.peek() != null && now.isAfter(notifiedTasks.peek().getDueDate())) {
-            notifiedTasks.poll(); // Remove from the front of the queue.
+    // Cancels in O(1): the heap entry is only flagged and gets skipped when it reaches the head.
+    private void cancel(Task task) {
+        Reminder reminder = pending.remove(task);
+        if (reminder == null) {
+            return;
+        }
+        reminder.cancelled = true;
+        cancelledCount++;
+        // Rebuild once cancelled entries make up most of the heap so it cannot grow without bound.
+        if (cancelledCount > 64 && cancelledCount > reminders.size() / 2) {
+            reminders.clear();
+            reminders.addAll(pending.values());
+            cancelledCount = 0;
         }
     }
 
-    // stop() and taskDeleted() are unchanged from the array version.
-    public void stop() { /* ... same as before ... */ }
-    public void taskDeleted(Task task) { notifiedTasks.remove(task); }
-}
\ No newline at end of file
+    // For tests: entries in the heap (cancelled ones not yet purged included), and the live reminders among them.
+    synchronized int queuedCount() {
+        return reminders.size();
+    }
+
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    // Arms the single timer for the earliest pending reminder, or for the next load if that comes first,
+    // if it is not armed early enough already.
+    private void armTimer() {
+        if (!started) {
+            return;
+        }
+        Reminder head = reminders.peek();
+        LocalDateTime wakeAt = loadAt();
+        if (head != null && head.notifyTime.isBefore(wakeAt)) {
+            wakeAt = head.notifyTime;
+        }
+        if (nextRun != null) {
+            if (!wakeAt.isBefore(armedFor)) {
+                return; // Already armed early enough; a cancelled head just causes a cheap empty run.
+            }
+            nextRun.cancel(false);
+        }
+        long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(clock), wakeAt).toMillis());
+        armedFor = wakeAt;
+        nextRun = scheduler.schedule(this::checkTaskNotifications, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Heap entry: one pending reminder for one task (for a recurring task, for one of its occurrences).
+    private static class Reminder implements Comparable<Reminder> {
+        private final Task task;
+        private final LocalDateTime due;
+        private final LocalDateTime notifyTime;
+        private boolean cancelled;
+
+        Reminder(Task task, LocalDateTime due, LocalDateTime notifyTime) {
+            this.task = task;
+            this.due = due;
+            this.notifyTime = notifyTime;
+        }
+
+        @Override
+        public int compareTo(Reminder other) {
+            return notifyTime.compareTo(other.notifyTime);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// The GUI's reminder notification: one small non-modal window listing every reminder that has come up and not
+// been dismissed, newest first. A new batch is added to the list and the window is shown if it was hidden;
+// it never takes the focus or blocks the main window, however many reminders arrive.
+// Sits behind a ReminderBatcher, which calls remind() on its delivery thread; the call waits until the EDT has
+// shown the batch, which is what lets the batcher hold back further reminders while the EDT is busy.
+// Needs a display. Without one, run the app as a server (-Dtaskmanager.server): its clients get the reminders
+// through ReminderFeed.
+public class ReminderPanel implements ReminderSink {
+    private static final int MAX_ROWS = 500; // Older rows are dropped from the list (the count stays right)
+    private static final Color BACKGROUND = new Color(255, 248, 225);
+    private static final Color TITLE_COLOR = new Color(80, 60, 120);
+
+    // Built on the EDT the first time a reminder is shown
+    private JDialog dialog;
+    private JLabel header;
+    private DefaultListModel<String> rows;
+    private int unseen; // Reminders since the last dismiss, including rows no longer listed
+
+    @Override
+    public void remind(List<Task> tasks) {
+        try {
+            SwingUtilities.invokeAndWait(() -> show(tasks));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException ex) {
+            System.err.println("Could not show reminders: " + ex.getCause());
+        }
+    }
+
+    // EDT
+    private void show(List<Task> tasks) {
+        if (dialog == null) {
+            build();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Task task : tasks) {
+            rows.add(0, describe(task, now));
+            ReminderManager.delivered(task);
+        }
+        if (rows.size() > MAX_ROWS) {
+            rows.removeRange(MAX_ROWS, rows.size() - 1);
+        }
+        unseen += tasks.size();
+        header.setText(unseen == 1 ? "1 task due soon" : unseen + " tasks due soon");
+        if (!dialog.isVisible()) {
+            Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+            dialog.setLocation(screen.x + screen.width - dialog.getWidth() - 20,
+                    screen.y + screen.height - dialog.getHeight() - 20); // Bottom-right corner
+            dialog.setVisible(true);
+        }
+    }
+
+    // e.g. "Pay rent - due 2025-01-31 09:00 (in 10 min)"
+    private static String describe(Task task, LocalDateTime now) {
+        long minutes = Duration.between(now, task.getDueDate()).toMinutes();
+        return task.getName() + " - due " + task.getDueDate().format(Task.formatter)
+                + (minutes > 0 ? " (in " + minutes + " min)" : " (now)");
+    }
+
+    private void build() {
+        dialog = new JDialog((Frame) null, "Reminders", false); // Non-modal
+        dialog.setAlwaysOnTop(true);
+        dialog.setFocusableWindowState(false); // Never steals the keyboard from whatever the user is typing in
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+
+        header = new JLabel();
+        header.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        header.setForeground(TITLE_COLOR);
+        header.setBorder(new EmptyBorder(10, 10, 5, 10));
+
+        rows = new DefaultListModel<>();
+        JList<String> list = new JList<>(rows);
+        list.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        list.setBackground(BACKGROUND);
+        list.setVisibleRowCount(8);
+        list.setPrototypeCellValue("A fairly long task name - due 2025-01-31 09:00 (in 10 min)");
+
+        JButton dismiss = new JButton("Dismiss");
+        dismiss.addActionListener(e -> dismiss());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.setBackground(BACKGROUND);
+        buttons.add(dismiss);
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.setBackground(BACKGROUND);
+        content.add(header, BorderLayout.NORTH);
+        content.add(new JScrollPane(list), BorderLayout.CENTER);
+        content.add(buttons, BorderLayout.SOUTH);
+        dialog.setContentPane(content);
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                dismiss();
+            }
+        });
+        dialog.pack();
+    }
+
+    private void dismiss() {
+        rows.clear();
+        unseen = 0;
+        dialog.setVisible(false);
+    }
+}
@@ -0,0 +1,10 @@
+import java.util.List;
+
+// Where ReminderManager delivers reminders that have come due: the GUI's reminder panel (ReminderPanel, behind
+// a ReminderBatcher), or the event feed of the headless server (ReminderFeed).
+// Called on the reminder scheduler's thread, so implementations hand the work off instead of blocking it,
+// and call ReminderManager.delivered(task) once a reminder has actually reached the user.
+public interface ReminderSink {
+    // The reminders that came due together, in notify time order.
+    void remind(List<Task> tasks);
+}
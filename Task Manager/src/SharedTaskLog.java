@@ -0,0 +1,705 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+// Shared-store mode (-Dtaskmanager.storage=shared): every instance of the app started on the same data directory
+// works on one task list, through files only (one machine, no server). Files in the data directory:
+//   shared.lock          locked with FileChannel.lock() by whichever instance is writing
+//   shared-<gen>.log     the change log: a header, the task list as of generation <gen> (base), then every
+//                        change since, as TaskJournal records
+//   shared-*.tmp         the next generation while it is being written
+// Each instance keeps the tasks in memory and remembers the byte offset up to which it has applied the log.
+// - Writing: TaskFunctions takes the file lock with its write lock. Holding it, the instance first applies the
+//   records other instances appended past its offset (so e.g. new ids continue after theirs), then makes its
+//   change and appends its own records before letting go.
+// - Reading: a WatchService on the directory wakes a watcher thread when a log file changes, which applies only
+//   the records past the offset. Nobody reloads the whole list.
+// - Compaction: past COMPACT_AFTER_RECORDS changes the writer copies the task list (TaskStore.frozen(), cheap) and
+//   a background thread writes it out as the base of a new generation, noting the byte of the old log it stands
+//   for. No lock is held meanwhile. The switch-over then takes the locks only to append the records written
+//   since that byte to the new file, rename it and delete the old one. An instance still on the old log (its open
+//   handle keeps working) reads it to the end and carries on at the matching byte of the new one; one further
+//   behind brings its tasks in line with the new base instead.
+// Records are visible to the other instances as soon as they are written (same page cache); they reach the
+// disk shortly after, forced on a background thread.
+// Problems never end sharing:
+// - A writer that died mid-append leaves an unfinished record at the end of the log. Appends only happen under the
+//   file lock, so whoever holds the lock next and finds it treats it as never written and cuts it off (as
+//   TaskJournal does with a torn journal tail).
+// - If the log cannot be locked, read or appended to, the write that needed it fails (UncheckedIOException) and
+//   this instance reloads the whole log on its next write or pull, dropping a change it could not publish.
+public class SharedTaskLog implements TaskListener {
+    private static final String LOCK_FILE = "shared.lock";
+    private static final String LOG_PREFIX = "shared-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final int MAGIC = 0x544D534C; // "TMSL"
+    // Magic, the offset where the base ends (long), and the offset in the previous generation's log that the base
+    // stands for (long; the records from there on follow the base)
+    private static final int HEADER_BYTES = 20;
+    private static final int COMPACT_AFTER_RECORDS = 100_000; // Changes after the base before a new generation
+    private static final long POLL_SECONDS = 2; // Also checked this often in case a watch event is lost
+    // FileChannel.lock() only makes other processes wait: a second lock on the file from this JVM throws
+    // OverlappingFileLockException instead. So instances in one JVM (tests, say) first take turns on one of these
+    // per lock file.
+    private static final Map<Path, Semaphore> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path dir;
+    private final ExecutorService syncer; // Forces appended records to disk off the writing thread
+    private final ExecutorService compactor; // Writes the next generation's base off the writing thread
+    private final AtomicBoolean forceScheduled = new AtomicBoolean();
+    private FileChannel lockChannel;
+    private Semaphore localLock;
+    private volatile FileChannel log; // Current generation; read and appended at explicit positions
+    private volatile long generation;
+    private volatile long offset; // Everything before this byte of `log` has been applied here
+    private TaskStore storeRef;
+    private TaskFunctions taskFunctionsRef;
+    private Thread watcher;
+    private volatile WatchService watchService; // Created by the watcher, closed by close()
+    private volatile boolean closed;
+
+    // Only touched while TaskFunctions holds its write lock
+    private FileLock fileLock; // Held from lock() to unlock()
+    private boolean pulling; // Applying other instances' records: the listener calls this causes are not logged
+    private final ByteArrayOutputStream pending; // This write's records, appended in unlock()
+    private int pendingRecords;
+    private int changesSinceBase;
+    private volatile Compaction compaction; // Started and not yet switched over to (or given up on)
+    private volatile boolean resync; // The store may not match the log after a failure: reload it on the next pull
+
+    public SharedTaskLog(Path dir) {
+        this.dir = dir;
+        this.pending = new ByteArrayOutputStream();
+        this.syncer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "shared-log-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "shared-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Reads the latest generation of the log into a new store (creating the log if there is none yet).
+    public TaskStore load() throws IOException {
+        Files.createDirectories(dir);
+        lockChannel = FileChannel.open(dir.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        localLock = LOCAL_LOCKS.computeIfAbsent(dir.toRealPath().resolve(LOCK_FILE), file -> new Semaphore(1));
+        TaskStore store = new TaskStore();
+        FileLock loadLock = lockFile(); // Nobody compacts or appends meanwhile
+        try {
+            long latest = latestGeneration();
+            if (latest == 0) {
+                latest = 1;
+                Files.move(writeBase(Collections.<Task>emptyList(), 0), logFile(latest),
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            generation = latest;
+            log = openLog(latest);
+            Header header = readHeader(log, latest);
+            readBase(log, latest, header.baseEnd, record -> TaskJournal.apply(record, store));
+            offset = readChanges(header.baseEnd, record -> {
+                TaskJournal.apply(record, store);
+                changesSinceBase++;
+            });
+            for (long gen : generations()) {
+                if (gen < latest) {
+                    Files.deleteIfExists(logFile(gen)); // Left behind by a compaction that was cut short
+                }
+            }
+        } finally {
+            try {
+                loadLock.release();
+            } finally {
+                localLock.release();
+            }
+        }
+        storeRef = store;
+        return store;
+    }
+
+    // Starts sharing every change made through the given TaskFunctions (which wraps the loaded store), and
+    // watching for the other instances' changes.
+    public void attach(TaskFunctions taskFunctions) {
+        taskFunctionsRef = taskFunctions;
+        taskFunctions.addTaskListener(this);
+        taskFunctions.share(this);
+        watcher = new Thread(this::watchLoop, "shared-log-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Stops sharing (waiting for a write in progress), then forces and closes the files. A compaction that has not
+    // been switched over to is dropped; the next instance to reach the limit starts another.
+    public void close() {
+        if (closed || taskFunctionsRef == null) {
+            return;
+        }
+        closed = true;
+        taskFunctionsRef.share(null);
+        try {
+            compactor.shutdown();
+            compactor.awaitTermination(5, TimeUnit.MINUTES);
+            Compaction unfinished = compaction;
+            if (unfinished != null && unfinished.file != null) {
+                Files.deleteIfExists(unfinished.file);
+            }
+            if (watchService != null) {
+                watchService.close(); // Wakes the watcher
+            }
+            watcher.join();
+            syncer.shutdown();
+            syncer.awaitTermination(30, TimeUnit.SECONDS);
+            log.force(false);
+            log.close();
+            lockChannel.close();
+        } catch (IOException ex) {
+            System.err.println("Could not close the shared task log: " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void taskAdded(Task task, int index) {
+        record(TaskJournal.encode(TaskJournal.OP_ADD, task));
+    }
+
+    @Override
+    public void taskRemoved(Task task, int index) {
+        record(TaskJournal.encode(TaskJournal.OP_REMOVE, task));
+    }
+
+    @Override
+    public void taskUpdated(Task task, int index) {
+        record(TaskJournal.encode(TaskJournal.OP_UPDATE, task));
+    }
+
+    private void record(byte[] record) {
+        if (fileLock != null && !pulling) {
+            pending.write(record, 0, record.length);
+            pendingRecords++;
+        }
+    }
+
+    // ------------ Called by TaskFunctions under its write lock ------------
+
+    // Takes the file lock and applies whatever the other instances wrote since this one last looked.
+    // Throws UncheckedIOException if that fails; the write must then not go ahead (it could not be shared).
+    void lock(TaskFunctions taskFunctions) {
+        if (closed) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            fileLock = lockFile(); // Waits for a writer in another instance
+            TaskMetrics.SHARED_LOCK_WAIT.recordSince(start);
+            pull(taskFunctions);
+        } catch (IOException ex) {
+            fail("could not catch up with the other instances", ex);
+            releaseFileLock();
+            throw new UncheckedIOException("Shared task log unavailable, nothing was changed", ex);
+        } catch (RuntimeException ex) {
+            fail("could not catch up with the other instances", ex);
+            releaseFileLock();
+            throw ex;
+        }
+    }
+
+    // Appends the records of the write that just happened (if any) and releases the file lock.
+    // Throws UncheckedIOException if they could not be appended: the change was made here but not shared, and
+    // is undone by the reload on the next pull.
+    void unlock() {
+        if (fileLock == null) {
+            return;
+        }
+        IOException failure = null;
+        try {
+            if (pendingRecords > 0) {
+                ByteBuffer records = ByteBuffer.wrap(pending.toByteArray());
+                long position = offset; // The end of the log: this instance caught up under the same lock
+                try {
+                    while (records.hasRemaining()) {
+                        position += log.write(records, position);
+                    }
+                } catch (IOException ex) {
+                    log.truncate(offset); // Take back what did get written, so no one applies half a change
+                    throw ex;
+                }
+                offset = position;
+                changesSinceBase += pendingRecords;
+                scheduleForce();
+                if (changesSinceBase >= COMPACT_AFTER_RECORDS && compaction == null) {
+                    startCompaction();
+                }
+            }
+        } catch (IOException ex) {
+            fail("could not share a change", ex);
+            failure = ex;
+        } finally {
+            releaseFileLock();
+            pending.reset();
+            pendingRecords = 0;
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Shared task log unavailable, the change was not saved", failure);
+        }
+    }
+
+    // Applies the records past `offset`, first moving to the newest generation if the log was compacted.
+    // Runs of records of the same kind are applied as one change (another instance's import is one bulk add).
+    // After a failure (resync) the whole log is read again the same way, as if it had been compacted.
+    private void pull(TaskFunctions taskFunctions) throws IOException {
+        pulling = true;
+        try {
+            long latest = latestGeneration();
+            if (latest > generation || resync) {
+                FileChannel next = openLog(latest);
+                try {
+                    Header header = readHeader(next, latest);
+                    boolean continued = false;
+                    if (latest == generation + 1 && !resync) {
+                        // Compacted from the log this instance is on, which nobody appends to any more: read it to
+                        // the end, which the new file continues from its base on
+                        applyChanges(taskFunctions);
+                        if (offset >= header.sourceOffset) {
+                            offset = header.baseEnd + (offset - header.sourceOffset);
+                            continued = true;
+                        }
+                    }
+                    if (!continued) {
+                        List<Task> base = new ArrayList<>();
+                        readBase(next, latest, header.baseEnd, record -> {
+                            record.readByte(); // OP_ADD
+                            base.add(TaskJournal.readAdded(record.readLong(), record));
+                        });
+                        taskFunctions.applySharedBase(base);
+                        offset = header.baseEnd;
+                    }
+                    FileChannel old = log;
+                    log = next;
+                    generation = latest;
+                    changesSinceBase = 0;
+                    old.close();
+                } catch (IOException | RuntimeException ex) {
+                    if (log != next) {
+                        next.close();
+                    }
+                    throw ex;
+                }
+            }
+            applyChanges(taskFunctions);
+            finishCompaction();
+            if (resync) {
+                resync = false;
+                System.err.println("Shared task log: back in step with the other instances");
+            }
+        } finally {
+            pulling = false;
+        }
+    }
+
+    // Applies the records from `offset` to the end of the current log.
+    private void applyChanges(TaskFunctions taskFunctions) throws IOException {
+        Changes changes = new Changes(taskFunctions);
+        offset = readChanges(offset, record -> {
+            changes.add(record);
+            changesSinceBase++;
+        });
+        changes.flush();
+    }
+
+    // Copies the task list as of now (under the locks, in the unlock() of a write) and has the compactor write it
+    // out as the next generation's base; the compactor then pulls, which switches over (finishCompaction).
+    private void startCompaction() {
+        Compaction started = new Compaction(generation, offset, changesSinceBase);
+        List<Task> base = storeRef.frozen();
+        compaction = started;
+        compactor.execute(() -> {
+            try {
+                started.file = writeBase(base, started.sourceOffset);
+            } catch (IOException ex) {
+                System.err.println("Could not compact the shared task log: " + ex.getMessage());
+                compaction = null; // The next write past the limit tries again
+                return;
+            }
+            if (!closed) {
+                try {
+                    taskFunctionsRef.pullSharedChanges();
+                } catch (UncheckedIOException ex) {
+                    // Already reported; any later pull switches over instead
+                }
+            }
+        });
+    }
+
+    // Under the locks, caught up with the log: makes the written base the next generation by appending the records
+    // that came after it, then moves everyone over. Dropped if another instance compacted first.
+    private void finishCompaction() throws IOException {
+        Compaction done = compaction;
+        if (done == null || done.file == null) {
+            return;
+        }
+        compaction = null;
+        long next = generation + 1;
+        try {
+            if (done.generation != generation || latestGeneration() != generation) {
+                Files.delete(done.file);
+                return;
+            }
+            try (FileChannel out = FileChannel.open(done.file, StandardOpenOption.WRITE)) {
+                out.position(out.size());
+                for (long from = done.sourceOffset; from < offset; ) {
+                    from += log.transferTo(from, offset - from, out);
+                }
+                out.force(true);
+            }
+            Files.move(done.file, logFile(next), StandardCopyOption.ATOMIC_MOVE);
+            TaskJournal.syncDirectory(dir); // Before the old log is deleted
+        } catch (IOException ex) {
+            System.err.println("Could not compact the shared task log: " + ex.getMessage());
+            Files.deleteIfExists(done.file);
+            return;
+        }
+        FileChannel old = log;
+        log = openLog(next);
+        generation = next;
+        offset = log.size();
+        changesSinceBase -= done.changes;
+        old.close();
+        Files.deleteIfExists(logFile(next - 1));
+    }
+
+    // Reports the first failure of a run and has the next pull reload the whole log.
+    private void fail(String what, Exception ex) {
+        if (!resync) {
+            System.err.println("Shared task log: " + what + ", reloading it on the next change: " + ex);
+        }
+        resync = true;
+    }
+
+    // Takes this JVM's turn on the lock file, then the file lock itself.
+    private FileLock lockFile() throws IOException {
+        localLock.acquireUninterruptibly();
+        try {
+            return lockChannel.lock();
+        } catch (IOException | RuntimeException ex) {
+            localLock.release();
+            throw ex;
+        }
+    }
+
+    private void releaseFileLock() {
+        if (fileLock == null) {
+            return;
+        }
+        try {
+            fileLock.release();
+        } catch (IOException ignored) {
+            // Released when the channel closes anyway
+        } finally {
+            fileLock = null;
+            localLock.release();
+        }
+    }
+
+    private void scheduleForce() {
+        if (forceScheduled.compareAndSet(false, true)) {
+            syncer.execute(() -> {
+                forceScheduled.set(false);
+                try {
+                    log.force(false);
+                } catch (ClosedChannelException ex) {
+                    // Compacted meanwhile: the new file was forced when written
+                } catch (IOException ex) {
+                    System.err.println("Could not flush the shared task log: " + ex.getMessage());
+                }
+            });
+        }
+    }
+
+    // ------------ Watcher thread ------------
+
+    private void watchLoop() {
+        try {
+            watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException ex) {
+            System.err.println("Cannot watch " + dir + ", checking for changes every " + POLL_SECONDS + " s: "
+                    + ex.getMessage());
+            watchService = null;
+        }
+        try {
+            while (!closed) {
+                if (hasNews()) {
+                    try {
+                        taskFunctionsRef.pullSharedChanges();
+                    } catch (UncheckedIOException ex) {
+                        // Already reported; tried again on the next wake-up (hasNews() stays true meanwhile)
+                    }
+                }
+                if (watchService == null) {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(POLL_SECONDS));
+                    continue;
+                }
+                // Any event in the directory just wakes the loop; hasNews() decides whether there is work
+                WatchKey key = watchService.poll(POLL_SECONDS, TimeUnit.SECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (ClosedWatchServiceException ex) {
+            // close()
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Cheap check without any lock: has the log grown past this instance, or been compacted? (Or does it need
+    // reloading after a failure?)
+    private boolean hasNews() {
+        try {
+            Compaction written = compaction;
+            return resync || (written != null && written.file != null) || log.size() > offset
+                    || latestGeneration() > generation;
+        } catch (IOException ex) {
+            return true; // e.g. the channel was just replaced; pulling sorts it out
+        }
+    }
+
+    // ------------ Log files ------------
+
+    // Writes header and base of a new generation to a file of its own (forced to disk), to be renamed into place,
+    // so a log file is never seen half-written. The file name is unique, so two instances compacting at once do
+    // not collide; whichever switches over second deletes its file.
+    private Path writeBase(List<Task> base, long sourceOffset) throws IOException {
+        Path tmp = Files.createTempFile(dir, LOG_PREFIX, ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeLong(0); // Base end, filled in below
+            out.writeLong(sourceOffset);
+            for (Task task : base) {
+                out.write(TaskJournal.encode(TaskJournal.OP_ADD, task));
+            }
+            out.flush();
+            ByteBuffer baseEnd = ByteBuffer.allocate(8);
+            baseEnd.putLong(0, channel.size());
+            channel.write(baseEnd, 4);
+            channel.force(true);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        return tmp;
+    }
+
+    private FileChannel openLog(long gen) throws IOException {
+        return FileChannel.open(logFile(gen), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Checks the magic number and reads the offsets.
+    private Header readHeader(FileChannel channel, long gen) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new EOFException("Shared task log header cut short");
+            }
+        }
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a shared task log: " + logFile(gen).getFileName());
+        }
+        return new Header(header.getLong(4), header.getLong(12));
+    }
+
+    // Reads a generation's base. It was written whole before the file got its name, so a bad record means the
+    // file is damaged.
+    private void readBase(FileChannel channel, long gen, long baseEnd, RecordHandler handler) throws IOException {
+        if (read(channel, HEADER_BYTES, baseEnd, handler) != baseEnd) {
+            throw new IOException("Corrupt base in " + logFile(gen).getFileName());
+        }
+    }
+
+    // Reads the changes from `from` to the end of the current log and returns where the last whole record ends.
+    // Anything after that was left by a writer that died mid-append (the caller holds the file lock, so nobody
+    // is appending now): it is cut off, and the next record is appended in its place.
+    private long readChanges(long from, RecordHandler handler) throws IOException {
+        long end = log.size();
+        if (end <= from) {
+            return from;
+        }
+        long good = read(log, from, end, handler);
+        if (good < end) {
+            System.err.println("Shared task log: dropping " + (end - good) + " bytes of an unfinished write at byte "
+                    + good + " of " + logFile(generation).getFileName());
+            log.truncate(good);
+        }
+        return good;
+    }
+
+    // Hands each whole record in [from, to) to the handler and returns where the last one ends: `to`, or earlier
+    // if a record there is cut short or fails its checksum.
+    private long read(FileChannel channel, long from, long to, RecordHandler handler) throws IOException {
+        channel.position(from);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        long position = from;
+        while (to - position >= 8) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 9 || length > TaskJournal.MAX_RECORD || to - position - 8 < length) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            handler.handle(new DataInputStream(new ByteArrayInputStream(payload)));
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    private Path logFile(long gen) {
+        return dir.resolve(String.format("%s%08d%s", LOG_PREFIX, gen, LOG_SUFFIX));
+    }
+
+    private long latestGeneration() throws IOException {
+        List<Long> gens = generations();
+        return gens.isEmpty() ? 0 : gens.get(gens.size() - 1);
+    }
+
+    private List<Long> generations() throws IOException {
+        List<Long> gens = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    gens.add(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        gens.sort(null);
+        return gens;
+    }
+
+    private static class Header {
+        private final long baseEnd;
+        private final long sourceOffset;
+
+        Header(long baseEnd, long sourceOffset) {
+            this.baseEnd = baseEnd;
+            this.sourceOffset = sourceOffset;
+        }
+    }
+
+    // A compaction from one generation: where the old log stood when the tasks were copied, and the base file once
+    // the compactor has written it.
+    private static class Compaction {
+        private final long generation;
+        private final long sourceOffset;
+        private final int changes; // changesSinceBase at the copy; the ones after it carry over to the new file
+        private volatile Path file;
+
+        Compaction(long generation, long sourceOffset, int changes) {
+            this.generation = generation;
+            this.sourceOffset = sourceOffset;
+            this.changes = changes;
+        }
+    }
+
+    private interface RecordHandler {
+        void handle(DataInputStream record) throws IOException;
+    }
+
+    // Collects consecutive records of one kind and applies them to TaskFunctions together.
+    private static class Changes {
+        private final TaskFunctions taskFunctions;
+        private byte op;
+        private final List<Task> added = new ArrayList<>();
+        private long[] ids = new long[64];
+        private long[] states = new long[64]; // OP_UPDATE: due epoch minute << 1 | completed
+        private int count;
+
+        Changes(TaskFunctions taskFunctions) {
+            this.taskFunctions = taskFunctions;
+        }
+
+        void add(DataInputStream record) throws IOException {
+            byte recordOp = record.readByte();
+            if (recordOp != op) {
+                flush();
+                op = recordOp;
+            }
+            long id = record.readLong();
+            if (op == TaskJournal.OP_ADD) {
+                added.add(TaskJournal.readAdded(id, record));
+            } else if (op == TaskJournal.OP_REMOVE || op == TaskJournal.OP_UPDATE) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    states = Arrays.copyOf(states, count * 2);
+                }
+                ids[count] = id;
+                if (op == TaskJournal.OP_UPDATE) {
+                    boolean completed = record.readBoolean();
+                    states[count] = record.readLong() << 1 | (completed ? 1 : 0);
+                }
+                count++;
+            } else {
+                throw new IOException("Unknown shared task log operation " + op);
+            }
+        }
+
+        void flush() {
+            if (op == TaskJournal.OP_ADD && !added.isEmpty()) {
+                taskFunctions.applySharedAdds(added);
+                added.clear();
+            } else if (op == TaskJournal.OP_REMOVE && count > 0) {
+                taskFunctions.applySharedRemoves(Arrays.copyOf(ids, count));
+            } else if (op == TaskJournal.OP_UPDATE && count > 0) {
+                taskFunctions.applySharedUpdates(Arrays.copyOf(ids, count), Arrays.copyOf(states, count));
+            }
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The tasks in due date order for the list's sorted views: incomplete tasks by due date (then id), followed by
+// completed tasks by due date (then id). Only ids and due minutes are kept, 16 bytes per task.
+//
+// The groups of the grouped view need no bookkeeping: within the incomplete tasks "overdue", "due today" and
+// "upcoming" are consecutive ranges, found by binary search for the current time (see firstDueAtOrAfter), so
+// tasks move between groups as time passes without anything being re-sorted.
+//
+// Built once from a snapshot of the store with a parallel sort (off the EDT), then kept up to date change by
+// change: insert/remove take a batch of tasks and move each array element at most once per batch.
+// Not thread-safe: after build() only the EDT uses it (TaskListModel).
+public class SortedTaskView {
+    // DS: two parallel arrays sorted by (completed, due, id); [0, completedFrom) are the incomplete tasks.
+    private long[] dues; // Due date as epoch minutes (Task.toEpochMinute)
+    private long[] ids;
+    private int size;
+    private int completedFrom;
+    // Due minute each recurring task was sorted in under: their due date moves when an occurrence is completed,
+    // so it cannot be read back from the task to find the old position. One-off due dates never change.
+    private final Map<Long, Long> recurringDues;
+
+    private SortedTaskView(long[] dues, long[] ids, int size, int completedFrom, Map<Long, Long> recurringDues) {
+        this.dues = dues;
+        this.ids = ids;
+        this.size = size;
+        this.completedFrom = completedFrom;
+        this.recurringDues = recurringDues;
+    }
+
+    // Sorts the tasks (in display order, i.e. id order, as TaskFunctions.getTasks() returns them).
+    // Sorts packed (completed, due offset, position) longs in parallel instead of comparing Task objects,
+    // as long as the due dates span less than 4000 years (otherwise boxed positions are sorted).
+    public static SortedTaskView build(List<Task> tasks) {
+        int count = tasks.size();
+        long[] dueOf = new long[count];
+        boolean[] completedOf = new boolean[count];
+        Map<Long, Long> recurringDues = new HashMap<>();
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int incomplete = 0;
+        for (int i = 0; i < count; i++) {
+            Task task = tasks.get(i);
+            dueOf[i] = task.getDueMinute();
+            completedOf[i] = task.isCompleted();
+            if (!completedOf[i]) {
+                incomplete++;
+            }
+            if (task.isRecurring()) {
+                recurringDues.put(task.getId(), dueOf[i]);
+            }
+            min = Math.min(min, dueOf[i]);
+            max = Math.max(max, dueOf[i]);
+        }
+
+        int[] order = new int[count];
+        if (count > 0 && max - min < (1L << 31)) {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = (completedOf[i] ? 1L << 62 : 0) | (dueOf[i] - min) << 31 | i;
+            }
+            Arrays.parallelSort(keys); // Splits across the common fork/join pool
+            for (int i = 0; i < count; i++) {
+                order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+            }
+        } else if (count > 0) {
+            Integer[] boxed = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                boxed[i] = i;
+            }
+            Arrays.parallelSort(boxed, (a, b) -> completedOf[a] != completedOf[b] ? (completedOf[a] ? 1 : -1)
+                    : dueOf[a] != dueOf[b] ? Long.compare(dueOf[a], dueOf[b]) : Integer.compare(a, b));
+            for (int i = 0; i < count; i++) {
+                order[i] = boxed[i];
+            }
+        }
+
+        long[] dues = new long[Math.max(16, count)];
+        long[] ids = new long[dues.length];
+        for (int position = 0; position < count; position++) {
+            dues[position] = dueOf[order[position]];
+            ids[position] = tasks.get(order[position]).getId();
+        }
+        return new SortedTaskView(dues, ids, count, incomplete, recurringDues);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long idAt(int position) {
+        return ids[position];
+    }
+
+    // Position of the first completed task (= number of incomplete tasks)
+    public int getCompletedFrom() {
+        return completedFrom;
+    }
+
+    // First position among the incomplete tasks whose due minute is >= the given one
+    public int firstDueAtOrAfter(long epochMinute) {
+        int low = 0;
+        int high = completedFrom;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dues[mid] < epochMinute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Takes the tasks out (those not in the view are skipped). Returns the positions they had, ascending.
+    public int[] remove(List<Task> tasks) {
+        int[] positions = new int[tasks.size()];
+        int found = 0;
+        for (Task task : tasks) {
+            int position = find(task);
+            if (position >= 0) {
+                positions[found++] = position;
+                if (task.isRecurring()) {
+                    recurringDues.remove(task.getId());
+                }
+            }
+        }
+        positions = Arrays.copyOf(positions, found);
+        Arrays.sort(positions);
+        // Close the gaps front to back, moving each run between two removed tasks with one arraycopy
+        int removedIncomplete = 0;
+        for (int i = 0; i < found; i++) {
+            int runStart = positions[i] + 1;
+            int runEnd = i + 1 < found ? positions[i + 1] : size;
+            System.arraycopy(dues, runStart, dues, runStart - i - 1, runEnd - runStart);
+            System.arraycopy(ids, runStart, ids, runStart - i - 1, runEnd - runStart);
+            if (positions[i] < completedFrom) {
+                removedIncomplete++;
+            }
+        }
+        size -= found;
+        completedFrom -= removedIncomplete;
+        return positions;
+    }
+
+    // Puts the tasks in by their current due date and completed flag. They must not be in the view (remove
+    // them first). Returns the positions they end up at, ascending.
+    public int[] insert(List<Task> tasks) {
+        int count = tasks.size();
+        // The batch sorted the same way as the view, merged in from the back so each element moves once
+        Key[] batch = new Key[count];
+        int incomplete = 0;
+        for (int i = 0; i < count; i++) {
+            Task task = tasks.get(i);
+            batch[i] = new Key(task.isCompleted(), task.getDueMinute(), task.getId());
+            if (!task.isCompleted()) {
+                incomplete++;
+            }
+            if (task.isRecurring()) {
+                recurringDues.put(task.getId(), batch[i].due);
+            }
+        }
+        Arrays.sort(batch);
+        if (size + count > ids.length) {
+            int capacity = Math.max(ids.length * 2, size + count);
+            dues = Arrays.copyOf(dues, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        // Merge from the back: the old tasks after each new one shift up by the number of new ones still to
+        // place, one arraycopy per run
+        int[] positions = new int[count];
+        int end = size; // Old tasks [end, size) are already in place
+        for (int next = count - 1; next >= 0; next--) {
+            Key key = batch[next];
+            int at = Math.min(end, insertionPoint(key));
+            System.arraycopy(dues, at, dues, at + next + 1, end - at);
+            System.arraycopy(ids, at, ids, at + next + 1, end - at);
+            dues[at + next] = key.due;
+            ids[at + next] = key.id;
+            positions[next] = at + next;
+            end = at;
+        }
+        size += count;
+        completedFrom += incomplete;
+        return positions;
+    }
+
+    // Current position of the task, or -1. Looks in both parts, since its completed flag may have changed
+    // since it was sorted in.
+    private int find(Task task) {
+        long id = task.getId();
+        Long recurringDue = recurringDues.get(id);
+        long due = recurringDue != null ? recurringDue : task.getDueMinute();
+        int position = search(0, completedFrom, due, id);
+        return position >= 0 ? position : search(completedFrom, size, due, id);
+    }
+
+    // Where a new task goes among the current ones: the first position sorting after it.
+    private int insertionPoint(Key key) {
+        int low = key.completed ? completedFrom : 0;
+        int high = key.completed ? size : completedFrom;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key.compareTo(key.completed, dues[mid], ids[mid]) > 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Binary search for (due, id) in [from, to), -1 if absent.
+    private int search(int from, int to, long due, long id) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = dues[mid] != due ? Long.compare(dues[mid], due) : Long.compare(ids[mid], id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Sort key of a task being inserted
+    private static class Key implements Comparable<Key> {
+        private final boolean completed;
+        private final long due;
+        private final long id;
+
+        Key(boolean completed, long due, long id) {
+            this.completed = completed;
+            this.due = due;
+            this.id = id;
+        }
+
+        int compareTo(boolean otherCompleted, long otherDue, long otherId) {
+            if (completed != otherCompleted) {
+                return completed ? 1 : -1;
+            }
+            return due != otherDue ? Long.compare(due, otherDue) : Long.compare(id, otherId);
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return compareTo(other.completed, other.due, other.id);
+        }
+    }
+}
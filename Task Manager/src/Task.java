@@ -1,46 +1,127 @@
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.util.Objects;
 
 public class Task {
     //Formats the date/time for tasks (like 2025-06-12 18:30)
     public static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    //How many minutes before the due date the reminder comes up, unless set otherwise; 0 means no reminder
+    public static final int DEFAULT_REMINDER_MINUTES = 10;
+    public static final int MAX_REMINDER_MINUTES = 7 * 24 * 60; // One week
 
-    //attribute defines(Stores the task name, due date, and whether it's completed)
+    //Compact form of a due date for storage: minutes since 1970-01-01 00:00 (due dates have minute precision)
+    public static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static final int COMPLETED_BIT = 1 << 31;
+
+    //attribute defines(Stores the stable id, task name, due date, and whether it's completed)
+    //Kept primitive so a task is one 40-byte object plus its name: the due date is an epoch minute (a LocalDateTime
+    //would be three more objects, 72 bytes) and getDueDate() makes the LocalDateTime when asked.
+    private final long id; // Assigned once by TaskStore and never reused, so identical tasks stay distinguishable
     private String name;
-    private LocalDateTime dueDate;
-    private boolean completed;
+    private long dueMinute; // Due date as an epoch minute (toEpochMinute)
+    private int flags = DEFAULT_REMINDER_MINUTES; // Reminder lead time in minutes, plus COMPLETED_BIT
+    private Recurrence recurrence; // Null for a one-off task; set when the task is created
     //Constructor
-    public Task(String name, LocalDateTime dueDate) {
+    public Task(long id, String name, LocalDateTime dueDate) {
+        this(id, name, toEpochMinute(dueDate));
+    }
+
+    //Constructor for a due date that is already an epoch minute (as stored on disk)
+    Task(long id, String name, long dueMinute) {
+        this.id = id;
         this.name = name.trim();
-        this.dueDate = dueDate;
-        this.completed = false;
+        this.dueMinute = dueMinute;
+    }
+
+    //Constructor for lightweight views whose data lives elsewhere (e.g. in a memory-mapped snapshot).
+    //Such subclasses override the getters below instead of using the fields.
+    protected Task(long id) {
+        this.id = id;
     }
     //Getters and Setters for name, dueDate, completed
 //Helps other classes access or change task details safely
+    public long getId() {
+        return id;
+    }
+
     public String getName() {
         return name;
     }
 
     public LocalDateTime getDueDate() {
-        return dueDate;
+        return fromEpochMinute(getDueMinute());
+    }
+
+    //Due date as an epoch minute. What the indexes sort and compare by, so that needs no LocalDateTime.
+    public long getDueMinute() {
+        return dueMinute;
     }
 
     public boolean isCompleted() {
-        return completed;
+        return (flags & COMPLETED_BIT) != 0;
     }
 
     public void setCompleted(boolean completed) {
-        this.completed = completed;
+        this.flags = completed ? flags | COMPLETED_BIT : flags & ~COMPLETED_BIT;
+    }
+
+    public int getReminderMinutes() {
+        return flags & ~COMPLETED_BIT;
+    }
+
+    public void setReminderMinutes(int reminderMinutes) {
+        this.flags = (flags & COMPLETED_BIT) | reminderMinutes; // Never negative (isValidReminderMinutes)
+    }
+
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    public void setRecurrence(Recurrence recurrence) {
+        this.recurrence = recurrence;
+    }
+
+    public boolean isRecurring() {
+        return getRecurrence() != null;
+    }
+
+    //Moves a recurring task to another occurrence (its due date is always the next open one).
+    //Safe on a stored task because TaskStore keeps recurring tasks out of its due date index.
+    void moveTo(LocalDateTime occurrence) {
+        if (recurrence == null) {
+            throw new IllegalStateException("Only recurring tasks move to another occurrence");
+        }
+        this.dueMinute = toEpochMinute(occurrence);
+    }
+
+    //One occurrence of this task as a task of its own (same id, name and lead time, that due date).
+    //Used for range queries and reminders; the task itself stands for its next open occurrence.
+    public Task occurrence(LocalDateTime due) {
+        return toEpochMinute(due) == getDueMinute() ? this : new Occurrence(this, due);
+    }
+
+    //Whether a lead time is one the app accepts (0 to MAX_REMINDER_MINUTES)
+    public static boolean isValidReminderMinutes(int minutes) {
+        return minutes >= 0 && minutes <= MAX_REMINDER_MINUTES;
     }
 
     @Override
     public String toString() {
         // 1. Start with the base information: name and due date.
-        String baseInfo = name + " (Due: " + dueDate.format(formatter) + ")";
+        String baseInfo = getName() + " (Due: " + getDueDate().format(formatter) + ")";
+        if (isRecurring()) {
+            baseInfo += " [Repeats " + getRecurrence() + "]";
+        }
 
         // 2. Check if the task is completed.
-        if (completed) {
+        if (isCompleted()) {
             // 3. If it is, add the "[Completed]" text and return.
             return baseInfo + " [Completed]";
         } else {
@@ -48,18 +129,60 @@ public class Task {
             return baseInfo;
         }
     }
+    // Identity is the stable id: equality must not change when the completed flag is toggled.
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Task)) return false;
         Task task = (Task) o;
-        return completed == task.completed &&
-                Objects.equals(name, task.name) &&
-                Objects.equals(dueDate, task.dueDate);
+        return id == task.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, dueDate, completed);
+        return Long.hashCode(id);
+    }
+
+    //A later occurrence of a recurring task. Not stored anywhere: it is made for a query result or a reminder
+    //and reads everything but the due date from the task.
+    private static class Occurrence extends Task {
+        private final Task series;
+        private final long due;
+
+        Occurrence(Task series, LocalDateTime due) {
+            super(series.getId());
+            this.series = series;
+            this.due = toEpochMinute(due);
+        }
+
+        @Override
+        public String getName() {
+            return series.getName();
+        }
+
+        @Override
+        public long getDueMinute() {
+            return due;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return false; // Only the occurrences still to come are ever made
+        }
+
+        @Override
+        public void setCompleted(boolean completed) {
+            throw new UnsupportedOperationException("Complete the task itself, not one of its occurrences");
+        }
+
+        @Override
+        public int getReminderMinutes() {
+            return series.getReminderMinutes();
+        }
+
+        @Override
+        public Recurrence getRecurrence() {
+            return series.getRecurrence();
+        }
     }
-}
\ No newline at end of file
+}
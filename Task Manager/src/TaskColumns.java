@@ -0,0 +1,60 @@
+// Tasks stored column by column, one row per task in id order, as TaskStore.attach() takes them.
+// Either the memory-mapped snapshot file itself (MappedTaskSnapshot) or a copy of it in compact heap arrays
+// (HeapTaskColumns). The store keeps its own live and completed bits per row, so the columns are never written.
+public interface TaskColumns {
+    // Ids from here on have never been handed out
+    long getNextId();
+
+    int size();
+
+    long id(int row);
+
+    // Due date as an epoch minute (Task.toEpochMinute); a recurring task's next open occurrence
+    long dueMinute(int row);
+
+    // Completed flag as of when the columns were written
+    boolean completed(int row);
+
+    String name(int row);
+
+    // The row's repeat rule as Recurrence.toBits, 0 if it does not repeat.
+    long recurrence(int row);
+
+    int reminderMinutes(int row);
+
+    // The row at the given position in due date order (rows sorted by due date then id).
+    int dueOrder(int position);
+
+    // Row holding the id (binary search on the id column), or -1.
+    default int rowOf(long id) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = id(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // First position in due date order whose due minute is >= the given minute.
+    default int firstDueAtOrAfter(long epochMinute) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dueMinute(dueOrder(mid)) < epochMinute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
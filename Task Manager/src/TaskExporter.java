@@ -0,0 +1,116 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+// Writes all tasks to a CSV or JSON file in the format TaskImporter reads back.
+// Tasks are written straight from the shared immutable snapshot (TaskFunctions.getTasks()) one at a time,
+// so exporting never copies the list and the GUI can keep changing tasks meanwhile.
+public class TaskExporter {
+    private final TaskFunctions taskFunctionsRef;
+
+    public TaskExporter(TaskFunctions taskFunctions) {
+        this.taskFunctionsRef = taskFunctions;
+    }
+
+    // Picks the format from the file extension: .json is JSON, anything else is written as CSV.
+    // Returns the number of tasks written.
+    public int exportFile(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return file.toString().toLowerCase(Locale.ROOT).endsWith(".json") ? exportJson(out) : exportCsv(out);
+        }
+    }
+
+    public int exportCsv(Writer out) throws IOException {
+        List<Task> tasks = taskFunctionsRef.getTasks();
+        out.write("name,due,completed,remind,repeat\n");
+        for (Task task : tasks) {
+            writeCsvField(out, task.getName());
+            out.write(',');
+            out.write(task.getDueDate().format(Task.formatter));
+            out.write(task.isCompleted() ? ",true," : ",false,");
+            out.write(Integer.toString(task.getReminderMinutes()));
+            out.write(',');
+            if (task.isRecurring()) {
+                out.write(task.getRecurrence().toString()); // Never needs quoting
+            }
+            out.write('\n');
+        }
+        out.flush();
+        return tasks.size();
+    }
+
+    public int exportJson(Writer out) throws IOException {
+        List<Task> tasks = taskFunctionsRef.getTasks();
+        out.write('[');
+        boolean first = true;
+        for (Task task : tasks) {
+            out.write(first ? "\n  {\"name\": " : ",\n  {\"name\": ");
+            first = false;
+            writeJsonString(out, task.getName());
+            out.write(", \"due\": \"");
+            out.write(task.getDueDate().format(Task.formatter));
+            out.write(task.isCompleted() ? "\", \"completed\": true" : "\", \"completed\": false");
+            out.write(", \"remind\": " + task.getReminderMinutes());
+            if (task.isRecurring()) {
+                out.write(", \"repeat\": \"" + task.getRecurrence() + "\"");
+            }
+            out.write('}');
+        }
+        out.write(first ? "]\n" : "\n]\n");
+        out.flush();
+        return tasks.size();
+    }
+
+    // Quotes the field only if it needs it (comma, quote, line break, or spaces at either end).
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        boolean quote = !value.isEmpty() && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ');
+        for (int i = 0; !quote && i < value.length(); i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    // Also used by TaskServer for its responses.
+    static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
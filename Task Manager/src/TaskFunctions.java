@@ -1,57 +1,726 @@
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
+// Task operations, safe to call from any thread (EDT, reminder scheduler, journal, ...).
+// - Writers (add/delete/toggle/undo/redo) are serialized by the write lock.
+// - Point reads (count, task at index, find by id) are optimistic: no lock unless a write got in the way.
+// - Whole-list reads get an immutable snapshot that is shared until the next change.
+// Every write is timed into TaskMetrics (lock wait separately), allocation-free.
+// In shared-store mode every write also holds the SharedTaskLog's file lock, so writers in all instances take
+// turns, and each first applies what the others have changed since its last write (see SharedTaskLog).
+// Listeners are called in change order while the write lock is held, so they must be quick and must not
+// call back into TaskFunctions from the same thread (hand work off, e.g. with SwingUtilities.invokeLater).
 public class TaskFunctions {
-    // DS #1: LinkedList for efficient dynamic storage of tasks.
-    private final List<Task> tasks;
-    // DS #2: Stack to manage the "Undo Delete" history.
-    private final Stack<Task> undoStack;
+    private static final int PARALLEL_PARSE_ROWS = 2048; // Smaller batches are parsed on the calling thread
+    // DS #1: TaskStore with stable ids, an id index and a due date index (see TaskStore).
+    private final TaskStore tasks;
+    // DS #2: bounded undo/redo log of every add, delete and toggle (see UndoLog).
+    private final UndoLog undoLog;
+    // Listeners notified after every change (e.g. ReminderManager keeps its schedule in sync this way).
+    // Copy-on-write: registering is rare, notifying happens on every change without locking the list.
+    private final List<TaskListener> listeners;
+    private final StampedLock lock;
+    // Read-only copy of the task list handed to whole-list readers (TaskStore.Frozen); cleared by every change.
+    private volatile List<Task> snapshot;
+    // Shared-store mode: the change log this instance shares with others, or null
+    private volatile SharedTaskLog sharedLog;
 
     public TaskFunctions() {
-        this.tasks = new LinkedList<>();
-        this.undoStack = new Stack<>();
+        this(new TaskStore());
     }
 
+    // Wraps an already populated store, e.g. one loaded from disk by TaskJournal.
+    public TaskFunctions(TaskStore store) {
+        this.tasks = store;
+        this.undoLog = new UndoLog();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.lock = new StampedLock();
+    }
+
+    // Immutable snapshot of all tasks in display order. Built once per change, then shared by all readers.
     public List<Task> getTasks() {
-        return tasks;
+        List<Task> current = snapshot;
+        if (current == null) {
+            long stamp = lock.readLock();
+            try {
+                current = snapshot;
+                if (current == null) {
+                    current = tasks.frozen(); // Read-only; a few bits per saved task, not a Task each
+                    snapshot = current;
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return current;
+    }
+
+    public int getTaskCount() {
+        long stamp = lock.tryOptimisticRead();
+        int count = tasks.size();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                count = tasks.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return count;
+    }
+
+    // Task at a display position, or null if the index is out of range.
+    public Task getTaskAt(int index) {
+        long stamp = lock.tryOptimisticRead();
+        Task task = null;
+        try {
+            task = index >= 0 && index < tasks.size() ? tasks.get(index) : null;
+        } catch (RuntimeException ex) {
+            // A writer changed the store mid-read; validate() fails and we retry under the lock.
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                task = index >= 0 && index < tasks.size() ? tasks.get(index) : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return task;
+    }
+
+    public Task findTask(long id) {
+        long stamp = lock.tryOptimisticRead();
+        Task task = null;
+        try {
+            task = tasks.find(id);
+        } catch (RuntimeException ex) {
+            // A writer changed the store mid-read; validate() fails and we retry under the lock.
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                task = tasks.find(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return task;
+    }
+
+    // Tasks due in [from, to), in due date order (e.g. "due in the next hour").
+    public List<Task> getTasksDueBetween(LocalDateTime from, LocalDateTime to) {
+        long stamp = lock.readLock(); // Walks the due date tree, which is not safe to read during a write
+        try {
+            return tasks.dueBetween(from, to);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Hands the incomplete tasks with an occurrence in [from, to) (TaskStore.openDueBetween) to the reader while
+    // still holding the read lock. Listeners are called under the write lock, so no change can fall between the
+    // read and what the reader does with it (how ReminderManager loads its next window).
+    public void readOpenDueBetween(LocalDateTime from, LocalDateTime to, Consumer<List<Task>> reader) {
+        long stamp = lock.readLock();
+        try {
+            reader.accept(tasks.openDueBetween(from, to));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Incomplete tasks that are past their due date.
+    public List<Task> getOverdueTasks() {
+        LocalDateTime now = LocalDateTime.now();
+        long stamp = lock.readLock();
+        try {
+            return tasks.overdue(now);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void addTaskListener(TaskListener listener) {
+        listeners.add(listener);
+    }
+
+    // Registers the listener and returns the tasks as of that moment, atomically:
+    // every later change reaches the listener, and none of the returned state is reported again.
+    // The tasks come by position (TaskStore.Frozen), so a subscriber that only needs ids or names makes no Tasks.
+    public TaskStore.Frozen subscribe(TaskListener listener) {
+        long stamp = lock.writeLock();
+        try {
+            listeners.add(listener);
+            return tasks.frozen();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void removeTaskListener(TaskListener listener) {
+        listeners.remove(listener);
     }
 
     public boolean isUndoAvailable() {
-        return !undoStack.isEmpty();
+        long stamp = lock.readLock();
+        try {
+            return undoLog.canUndo();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isRedoAvailable() {
+        long stamp = lock.readLock();
+        try {
+            return undoLog.canRedo();
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     public boolean addTask(String name, String dueStr) {
+        return addTask(name, dueStr, Task.DEFAULT_REMINDER_MINUTES);
+    }
+
+    public boolean addTask(String name, String dueStr, int reminderMinutes) {
+        return addTask(name, dueStr, reminderMinutes, null);
+    }
+
+    // Adds a task whose reminder comes up reminderMinutes before it is due (0: no reminder).
+    // With a repeat rule (Recurrence text form, null/blank for none) it is one recurring task, due first at the
+    // rule's first occurrence on or after dueStr.
+    public boolean addTask(String name, String dueStr, int reminderMinutes, String repeat) {
+        if (!Task.isValidReminderMinutes(reminderMinutes)) {
+            System.err.println("Invalid reminder lead time: " + reminderMinutes + " minutes");
+            return false;
+        }
+        long start = System.nanoTime();
+        LocalDateTime dueDate;
+        Recurrence rule;
         try {
-            LocalDateTime dueDate = LocalDateTime.parse(dueStr.trim(), Task.formatter);
-            Task task = new Task(name, dueDate);
-            tasks.add(task); // Simple and efficient add operation.
-            return true;
+            dueDate = LocalDateTime.parse(dueStr.trim(), Task.formatter); // Parsed before taking the lock
+            rule = Recurrence.parse(repeat);
         } catch (DateTimeParseException ex) {
             System.err.println("Invalid date/time format: " + ex.getMessage());
             return false;
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            return false;
         }
+        if (rule != null) {
+            dueDate = rule.first(dueDate);
+            if (dueDate == null) {
+                System.err.println("Repeat rule ends before its first occurrence");
+                return false;
+            }
+        }
+        long stamp = writeLock();
+        try {
+            Task task = new Task(tasks.newId(), name, dueDate);
+            task.setReminderMinutes(reminderMinutes);
+            task.setRecurrence(rule);
+            int index = tasks.add(task); // Appends in O(1) and indexes by id and due date.
+            undoLog.record(UndoLog.ADD, new long[]{task.getId()});
+            changed();
+            for (TaskListener listener : listeners) {
+                listener.taskAdded(task, index);
+            }
+            return true;
+        } finally {
+            unlockWrite(stamp);
+            TaskMetrics.ADD_TASK.recordSince(start);
+        }
+    }
+
+    // Adds a batch of tasks as a single change. Due dates are parsed in parallel before taking the lock, then
+    // every valid row is inserted under one write lock and listeners get one tasksAdded call for the batch.
+    // Rejected rows (no name, bad date, bad repeat rule) are reported in the result instead of printed.
+    // Undo removes the batch.
+    public BatchResult addTasks(List<TaskRow> rows) {
+        return addTasks(rows, null);
+    }
+
+    // Starts a bulk add that comes in several batches (an import): see BulkAdd.
+    public BulkAdd startBulkAdd() {
+        return new BulkAdd();
+    }
+
+    private BatchResult addTasks(List<TaskRow> rows, BulkAdd bulk) {
+        long start = System.nanoTime();
+        int count = rows.size();
+        LocalDateTime[] dueDates = new LocalDateTime[count];
+        Recurrence[] rules = new Recurrence[count];
+        String[] errors = new String[count];
+        IntStream indexes = IntStream.range(0, count);
+        if (count >= PARALLEL_PARSE_ROWS) {
+            indexes = indexes.parallel(); // Split into chunks across the common fork/join pool
+        }
+        indexes.forEach(i -> {
+            TaskRow row = rows.get(i);
+            if (row.getName() == null || row.getName().trim().isEmpty()) {
+                errors[i] = "Missing task name";
+            } else if (row.getDueDate() == null || row.getDueDate().trim().isEmpty()) {
+                errors[i] = "Missing due date";
+            } else {
+                try {
+                    dueDates[i] = LocalDateTime.parse(row.getDueDate().trim(), Task.formatter);
+                } catch (DateTimeParseException ex) {
+                    errors[i] = "Invalid due date \"" + row.getDueDate() + "\", expected yyyy-MM-dd HH:mm";
+                }
+                if (errors[i] == null && !Task.isValidReminderMinutes(row.getReminderMinutes())) {
+                    errors[i] = "Invalid reminder lead time " + row.getReminderMinutes()
+                            + ", expected 0 to " + Task.MAX_REMINDER_MINUTES + " minutes";
+                }
+                if (errors[i] == null) {
+                    try {
+                        rules[i] = Recurrence.parse(row.getRecurrence());
+                    } catch (IllegalArgumentException ex) {
+                        errors[i] = ex.getMessage();
+                    }
+                }
+                if (rules[i] != null) {
+                    dueDates[i] = rules[i].first(dueDates[i]);
+                    if (dueDates[i] == null) {
+                        errors[i] = "Repeat rule ends before its first occurrence";
+                    }
+                }
+            }
+        });
+        // Imports tend to repeat names (chores, one line per date): rows with the same name share one String
+        String[] names = new String[count];
+        Map<String, String> distinct = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (errors[i] == null) {
+                names[i] = distinct.computeIfAbsent(rows.get(i).getName().trim(), name -> name);
+            }
+        }
+
+        BatchResult result = new BatchResult();
+        List<Task> added = new ArrayList<>(count);
+        long stamp = writeLock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (errors[i] == null) {
+                    Task task = new Task(tasks.newId(), names[i], dueDates[i]);
+                    task.setCompleted(rows.get(i).isCompleted());
+                    task.setReminderMinutes(rows.get(i).getReminderMinutes());
+                    task.setRecurrence(rules[i]);
+                    added.add(task);
+                }
+            }
+            if (!added.isEmpty()) {
+                long[] ids = ids(added);
+                if (bulk == null || bulk.entry == null || !undoLog.extend(bulk.entry, ids)) {
+                    UndoLog.Entry entry = undoLog.record(UndoLog.ADD, ids);
+                    if (bulk != null) {
+                        bulk.entry = entry;
+                    }
+                }
+                insert(added); // New ids are the highest, so the batch lands at the end in order
+            }
+        } finally {
+            unlockWrite(stamp);
+            TaskMetrics.ADD_TASKS.recordSince(start);
+        }
+
+        result.added(added.size());
+        for (int i = 0; i < count; i++) {
+            if (errors[i] != null) {
+                result.error(rows.get(i).getRow(), errors[i]);
+            }
+        }
+        return result;
     }
 
     public void deleteTask(Task task) {
-        if (task != null && tasks.remove(task)) {
-            undoStack.push(task); // Push the deleted task onto the undo stack.
+        if (task != null) {
+            deleteTasks(Collections.singletonList(task));
         }
     }
 
-    public void undoDelete() {
-        if (!undoStack.isEmpty()) {
-            Task taskToRestore = undoStack.pop(); // Pop the last deleted task.
-            tasks.add(taskToRestore); // Add it back to the main list.
+    // Deletes several tasks as one change; a single undo brings them all back where they were.
+    public void deleteTasks(List<Task> toDelete) {
+        long start = System.nanoTime();
+        long stamp = writeLock();
+        try {
+            List<Task> stored = resolve(toDelete); // Found through the id index, not a list scan.
+            if (!stored.isEmpty()) {
+                remove(stored);
+                undoLog.record(UndoLog.DELETE, ids(stored));
+            }
+        } finally {
+            unlockWrite(stamp);
+            TaskMetrics.DELETE_TASKS.recordSince(start);
         }
     }
 
     public void toggleComplete(Task task) {
         if (task != null) {
-            // No structural change, just updating the object's state.
-            task.setCompleted(!task.isCompleted());
+            toggleComplete(Collections.singletonList(task));
+        }
+    }
+
+    // Flips the completed flag of several tasks as one change (one undo entry). For a recurring task that is
+    // not completed this completes its current occurrence: the task moves on to the next one (no copy is made),
+    // and only once the series has no more occurrences is the task itself completed.
+    public void toggleComplete(List<Task> toToggle) {
+        long start = System.nanoTime();
+        long stamp = writeLock();
+        try {
+            List<Task> stored = resolve(toToggle); // The caller may hold older copies/views of the tasks
+            if (!stored.isEmpty()) {
+                long[] before = toggle(stored);
+                undoLog.record(UndoLog.TOGGLE, ids(stored), before);
+            }
+        } finally {
+            unlockWrite(stamp);
+            TaskMetrics.TOGGLE_COMPLETE.recordSince(start);
+        }
+    }
+
+    // Reverts the most recent add, delete or toggle (a bulk one as a whole). Restored tasks go back to their
+    // original position. Returns false if there was nothing to undo.
+    public boolean undo() {
+        long start = System.nanoTime();
+        long stamp = writeLock();
+        try {
+            UndoLog.Entry entry = undoLog.undo();
+            if (entry == null) {
+                return false;
+            }
+            switch (entry.getKind()) {
+                case UndoLog.ADD:
+                    remove(find(entry.getIds()));
+                    break;
+                case UndoLog.DELETE:
+                    insert(exhume(entry.getIds()));
+                    break;
+                default:
+                    untoggle(entry);
+            }
+            return true;
+        } finally {
+            unlockWrite(stamp);
+            TaskMetrics.UNDO.recordSince(start);
+        }
+    }
+
+    // Does the most recently undone command again. Returns false if there was nothing to redo.
+    public boolean redo() {
+        long start = System.nanoTime();
+        long stamp = writeLock();
+        try {
+            UndoLog.Entry entry = undoLog.redo();
+            if (entry == null) {
+                return false;
+            }
+            switch (entry.getKind()) {
+                case UndoLog.ADD:
+                    insert(exhume(entry.getIds()));
+                    break;
+                case UndoLog.DELETE:
+                    remove(find(entry.getIds()));
+                    break;
+                default:
+                    untoggle(entry);
+            }
+            return true;
+        } finally {
+            unlockWrite(stamp);
+            TaskMetrics.REDO.recordSince(start);
+        }
+    }
+
+    // Shared-store mode: applies the changes other instances have made since this one last wrote or pulled.
+    // Called by the SharedTaskLog's watcher when the log grows.
+    void pullSharedChanges() {
+        long stamp = writeLock(); // Catches up on the way in
+        unlockWrite(stamp);
+    }
+
+    // Starts coordinating every write with the other instances sharing the log (SharedTaskLog.attach), or
+    // stops (null). Waits for a write in progress, so none is left half-shared.
+    void share(SharedTaskLog log) {
+        long stamp = lock.writeLock();
+        sharedLog = log;
+        lock.unlockWrite(stamp);
+    }
+
+    // Takes the write lock, recording how long writers queue for it (TaskMetrics.WRITE_LOCK_WAIT).
+    // In shared-store mode then also the file lock, catching up with the other instances; if that fails the
+    // write lock is let go again and the UncheckedIOException reaches the caller before anything changes.
+    private long writeLock() {
+        long start = System.nanoTime();
+        long stamp = lock.writeLock();
+        TaskMetrics.WRITE_LOCK_WAIT.recordSince(start);
+        SharedTaskLog shared = sharedLog;
+        if (shared != null) {
+            try {
+                shared.lock(this);
+            } catch (RuntimeException ex) {
+                lock.unlockWrite(stamp);
+                throw ex;
+            }
+        }
+        return stamp;
+    }
+
+    // Releases the write lock; in shared-store mode first publishes this write's records and lets go of the file
+    // (an UncheckedIOException from there still reaches the caller, after the write lock is released).
+    private void unlockWrite(long stamp) {
+        SharedTaskLog shared = sharedLog;
+        try {
+            if (shared != null) {
+                shared.unlock();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // ------------ Changes from other instances (SharedTaskLog, under the write lock) ------------
+    // Applied like local changes as far as listeners can tell, but never recorded for undo.
+
+    void applySharedAdds(List<Task> added) {
+        List<Task> missing = new ArrayList<>(added.size());
+        for (Task task : added) {
+            if (tasks.find(task.getId()) == null) {
+                missing.add(task);
+            }
+        }
+        insert(missing);
+    }
+
+    void applySharedRemoves(long[] ids) {
+        List<Task> stored = find(ids);
+        int[] indexes = tasks.removeAll(stored);
+        if (!stored.isEmpty()) {
+            removed(stored, indexes);
+        }
+    }
+
+    // states as in state(): due epoch minute << 1 | completed
+    void applySharedUpdates(long[] ids, long[] states) {
+        List<Task> changedTasks = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            Task task = tasks.find(ids[i]);
+            if (task != null) {
+                restore(task, states[i]);
+                changedTasks.add(task);
+            }
+        }
+        updated(changedTasks);
+    }
+
+    // The log was compacted while this instance was behind: makes the store match the compacted task list,
+    // touching only the tasks that differ.
+    void applySharedBase(List<Task> base) {
+        Map<Long, Task> wanted = new HashMap<>(base.size() * 2);
+        for (Task task : base) {
+            wanted.put(task.getId(), task);
+        }
+        List<Task> gone = new ArrayList<>();
+        List<Task> differing = new ArrayList<>();
+        for (Task task : tasks.frozen()) {
+            Task target = wanted.remove(task.getId());
+            if (target == null) {
+                gone.add(task);
+            } else if (state(target) != state(task)) {
+                restore(task, state(target));
+                differing.add(task);
+            }
+        }
+        int[] indexes = tasks.removeAll(gone);
+        if (!gone.isEmpty()) {
+            removed(gone, indexes);
+        }
+        if (!differing.isEmpty()) {
+            updated(differing);
+        }
+        insert(new ArrayList<>(wanted.values()));
+    }
+
+    // ------------ Under the write lock ------------
+
+    // Inserts tasks (new, or restored with their old ids) in one store pass and notifies listeners once.
+    private void insert(List<Task> toInsert) {
+        int[] indexes = tasks.addAll(toInsert); // Sorts toInsert into display order
+        if (toInsert.isEmpty()) {
+            return;
+        }
+        changed();
+        List<Task> batch = Collections.unmodifiableList(toInsert);
+        for (TaskListener listener : listeners) {
+            if (indexes.length == 1) {
+                listener.taskAdded(batch.get(0), indexes[0]);
+            } else {
+                listener.tasksAdded(batch, indexes);
+            }
+        }
+    }
+
+    // Removes stored tasks in one store pass, keeps them for undo/redo and notifies listeners once.
+    private void remove(List<Task> toRemove) {
+        int[] indexes = tasks.removeAll(toRemove); // Sorts toRemove into display order
+        if (toRemove.isEmpty()) {
+            return;
+        }
+        for (Task task : toRemove) {
+            undoLog.bury(task);
+        }
+        removed(toRemove, indexes);
+    }
+
+    private void removed(List<Task> toRemove, int[] indexes) {
+        changed();
+        List<Task> batch = Collections.unmodifiableList(toRemove);
+        for (TaskListener listener : listeners) {
+            if (indexes.length == 1) {
+                listener.taskRemoved(batch.get(0), indexes[0]);
+            } else {
+                listener.tasksRemoved(batch, indexes);
+            }
+        }
+    }
+
+    // No structural change, just updating each object's state: completes or reopens each task, or moves a
+    // recurring one on to its next occurrence. Returns each task's state from before (see state()) if any of
+    // them is recurring, for the undo log; null otherwise, as toggling one-off tasks again undoes it.
+    private long[] toggle(List<Task> toToggle) {
+        long[] before = null;
+        for (int i = 0; i < toToggle.size(); i++) {
+            if (toToggle.get(i).isRecurring()) {
+                before = new long[toToggle.size()];
+                for (int j = 0; j < before.length; j++) {
+                    before[j] = state(toToggle.get(j));
+                }
+                break;
+            }
+        }
+        for (Task task : toToggle) {
+            LocalDateTime next = task.isRecurring() && !task.isCompleted()
+                    ? task.getRecurrence().next(task.getDueDate()) : null;
+            if (next != null) {
+                task.moveTo(next);
+            } else {
+                task.setCompleted(!task.isCompleted());
+            }
+        }
+        updated(toToggle);
+        return before;
+    }
+
+    // Undoes or redoes a toggle: toggles again, or with recurring tasks involved swaps each task's state with
+    // the one in the entry (which then holds the state to go back to the other way).
+    private void untoggle(UndoLog.Entry entry) {
+        long[] states = entry.getStates();
+        if (states == null) {
+            toggle(find(entry.getIds()));
+            return;
+        }
+        List<Task> swapped = new ArrayList<>(states.length);
+        long[] ids = entry.getIds();
+        for (int i = 0; i < ids.length; i++) {
+            Task task = tasks.find(ids[i]);
+            if (task != null) {
+                long current = state(task);
+                restore(task, states[i]);
+                states[i] = current;
+                swapped.add(task);
+            }
+        }
+        updated(swapped);
+    }
+
+    private void updated(List<Task> changedTasks) {
+        changed();
+        for (Task task : changedTasks) {
+            int index = tasks.indexOf(task);
+            for (TaskListener listener : listeners) {
+                listener.taskUpdated(task, index);
+            }
+        }
+    }
+
+    // Due date and completed flag in one long: epoch minute << 1 | completed.
+    private static long state(Task task) {
+        return task.getDueMinute() << 1 | (task.isCompleted() ? 1 : 0);
+    }
+
+    private static void restore(Task task, long state) {
+        task.setCompleted((state & 1) != 0);
+        if (task.isRecurring()) {
+            task.moveTo(Task.fromEpochMinute(state >> 1));
+        }
+    }
+
+    // The stored instances of the given tasks (skipping ones no longer stored), each once.
+    private List<Task> resolve(List<Task> given) {
+        long[] wanted = new long[given.size()];
+        for (int i = 0; i < wanted.length; i++) {
+            wanted[i] = given.get(i) == null ? -1 : given.get(i).getId();
+        }
+        return find(wanted);
+    }
+
+    private List<Task> find(long[] ids) {
+        List<Task> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Task task = tasks.find(id);
+            if (task != null) {
+                found.add(task);
+            }
+        }
+        return found;
+    }
+
+    private List<Task> exhume(long[] ids) {
+        List<Task> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Task task = undoLog.exhume(id);
+            if (task != null) {
+                found.add(task);
+            }
+        }
+        return found;
+    }
+
+    private static long[] ids(List<Task> list) {
+        long[] ids = new long[list.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = list.get(i).getId();
+        }
+        return ids;
+    }
+
+    // Called under the write lock after every change.
+    private void changed() {
+        snapshot = null;
+    }
+
+    // A bulk add that arrives in batches, e.g. an import read from a file a batch at a time. Each batch goes in as
+    // its own change (one write lock, one tasksAdded), so a long import never holds the lock for long and memory
+    // stays flat, but for undo/redo the batches are one command: undo takes back the whole import. If another
+    // command comes in between two batches, the later batches start a new undo entry.
+    public class BulkAdd {
+        private UndoLog.Entry entry; // Undo entry the batches so far went into; only used under the write lock
+
+        private BulkAdd() {
+        }
+
+        public BatchResult addTasks(List<TaskRow> rows) {
+            return TaskFunctions.this.addTasks(rows, this);
         }
     }
-}
\ No newline at end of file
+}
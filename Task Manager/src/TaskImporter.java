@@ -0,0 +1,440 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Streams tasks from a CSV or JSON file into TaskFunctions.addTasks, BATCH_SIZE rows at a time.
+// Only one batch is held in memory, however large the file; each batch is one change to the store
+// (one journal burst, one list update in the GUI). For undo the whole import is one command (TaskFunctions.BulkAdd).
+//
+// CSV: one task per line, `name,due,completed,remind,repeat` (the last three are optional). A header line naming
+//      the columns is recognized and may list them in any order. Fields with commas, quotes or line breaks are
+//      quoted ("").
+// JSON: an array of objects: [{"name": "Pay rent", "due": "2025-01-31 09:00", "completed": false, "remind": 30,
+//      "repeat": "every 4 weeks"}, ...]. Other keys are ignored.
+// remind is the reminder lead time in minutes (0: no reminder); without it a task gets the default.
+// repeat makes it a recurring task (see Recurrence for the rules); empty or missing means it happens once.
+// Due dates use the app's format, yyyy-MM-dd HH:mm. Bad rows are skipped and listed in the result; a file that
+// cannot be read any further (e.g. broken JSON) stops the import with everything before that point kept.
+public class TaskImporter {
+    private static final int BATCH_SIZE = 10_000;
+
+    private final TaskFunctions taskFunctionsRef;
+
+    public TaskImporter(TaskFunctions taskFunctions) {
+        this.taskFunctionsRef = taskFunctions;
+    }
+
+    // Picks the format from the file extension: .json is JSON, anything else is read as CSV.
+    public BatchResult importFile(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return file.toString().toLowerCase(Locale.ROOT).endsWith(".json") ? importJson(in) : importCsv(in);
+        }
+    }
+
+    public BatchResult importCsv(Reader reader) throws IOException {
+        CsvReader in = new CsvReader(reader);
+        TaskFunctions.BulkAdd bulk = taskFunctionsRef.startBulkAdd();
+        BatchResult result = new BatchResult();
+        List<TaskRow> batch = new ArrayList<>();
+        int nameColumn = 0;
+        int dueColumn = 1;
+        int completedColumn = 2;
+        int remindColumn = 3;
+        int repeatColumn = 4;
+        boolean first = true;
+        try {
+            List<String> fields;
+            while ((fields = in.next()) != null) {
+                long row = in.recordLine();
+                if (fields.size() == 1 && fields.get(0).trim().isEmpty()) {
+                    continue; // Blank line
+                }
+                if (first) {
+                    first = false;
+                    if (column(fields, "name") >= 0) { // Header line
+                        nameColumn = column(fields, "name");
+                        dueColumn = column(fields, "due");
+                        completedColumn = column(fields, "completed");
+                        remindColumn = column(fields, "remind");
+                        repeatColumn = column(fields, "repeat");
+                        continue;
+                    }
+                }
+                Boolean completed = parseCompleted(field(fields, completedColumn));
+                if (completed == null) {
+                    result.error(row, "Invalid completed value \"" + field(fields, completedColumn) + "\"");
+                    continue;
+                }
+                Integer remind = parseRemind(field(fields, remindColumn));
+                if (remind == null) {
+                    result.error(row, "Invalid remind value \"" + field(fields, remindColumn) + "\"");
+                    continue;
+                }
+                batch.add(new TaskRow(row, field(fields, nameColumn), field(fields, dueColumn), completed, remind,
+                        field(fields, repeatColumn)));
+                if (batch.size() == BATCH_SIZE) {
+                    flush(bulk, batch, result);
+                }
+            }
+        } catch (FormatException ex) {
+            result.error(ex.row, ex.getMessage() + " (import stopped here)");
+        }
+        flush(bulk, batch, result);
+        return result;
+    }
+
+    public BatchResult importJson(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        TaskFunctions.BulkAdd bulk = taskFunctionsRef.startBulkAdd();
+        BatchResult result = new BatchResult();
+        List<TaskRow> batch = new ArrayList<>();
+        long row = 0;
+        try {
+            in.expect('[');
+            if (!in.consume(']')) {
+                do {
+                    row++;
+                    in.expect('{');
+                    String name = null;
+                    String due = null;
+                    Object completed = Boolean.FALSE;
+                    Object remind = null;
+                    String repeat = null;
+                    if (!in.consume('}')) {
+                        do {
+                            String key = in.readString();
+                            in.expect(':');
+                            Object value = in.readValue();
+                            if ("name".equals(key)) {
+                                name = value == null ? null : value.toString();
+                            } else if ("due".equals(key)) {
+                                due = value == null ? null : value.toString();
+                            } else if ("completed".equals(key)) {
+                                completed = value;
+                            } else if ("remind".equals(key)) {
+                                remind = value;
+                            } else if ("repeat".equals(key)) {
+                                repeat = value == null ? null : value.toString();
+                            }
+                        } while (in.consume(','));
+                        in.expect('}');
+                    }
+                    Boolean done = completed instanceof Boolean ? (Boolean) completed
+                            : parseCompleted(completed == null ? null : completed.toString());
+                    Integer minutes = parseRemind(remind == null ? null : remind.toString());
+                    if (done == null) {
+                        result.error(row, "Invalid completed value \"" + completed + "\"");
+                    } else if (minutes == null) {
+                        result.error(row, "Invalid remind value \"" + remind + "\"");
+                    } else {
+                        batch.add(new TaskRow(row, name, due, done, minutes, repeat));
+                        if (batch.size() == BATCH_SIZE) {
+                            flush(bulk, batch, result);
+                        }
+                    }
+                } while (in.consume(','));
+                in.expect(']');
+            }
+        } catch (FormatException ex) {
+            result.error(row, ex.getMessage() + " (import stopped here)");
+        }
+        flush(bulk, batch, result);
+        return result;
+    }
+
+    private static void flush(TaskFunctions.BulkAdd bulk, List<TaskRow> batch, BatchResult result) {
+        if (!batch.isEmpty()) {
+            result.include(bulk.addTasks(batch));
+            batch.clear();
+        }
+    }
+
+    private static int column(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    // true/false, yes/no, 1/0 or x; empty means not completed. Null if unrecognized.
+    private static Boolean parseCompleted(String value) {
+        String v = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        switch (v) {
+            case "":
+            case "false":
+            case "no":
+            case "0":
+                return Boolean.FALSE;
+            case "true":
+            case "yes":
+            case "1":
+            case "x":
+                return Boolean.TRUE;
+            default:
+                return null;
+        }
+    }
+
+    // Whole minutes; empty means the default lead time. Null if not a number (the range is checked by addTasks).
+    private static Integer parseRemind(String value) {
+        String v = value == null ? "" : value.trim();
+        if (v.isEmpty()) {
+            return Task.DEFAULT_REMINDER_MINUTES;
+        }
+        try {
+            return Integer.valueOf(v);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    // The file cannot be read past this point.
+    private static class FormatException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final long row;
+
+        FormatException(long row, String message) {
+            super(message);
+            this.row = row;
+        }
+    }
+
+    // Character source with its own buffer: Reader.read() takes a lock per call, which adds up per character.
+    private static class CharInput {
+        private final Reader in;
+        private final char[] buffer = new char[1 << 14];
+        private int position;
+        private int limit;
+
+        CharInput(Reader in) {
+            this.in = in;
+        }
+
+        int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+
+    // Reads CSV records one at a time (RFC 4180 quoting; quoted fields may span lines).
+    private static class CsvReader {
+        private final CharInput in;
+        private long line = 1;
+        private long recordLine;
+
+        CsvReader(Reader in) {
+            this.in = new CharInput(in);
+        }
+
+        // Line the last record started on
+        long recordLine() {
+            return recordLine;
+        }
+
+        // The next record's fields, or null at the end of the input.
+        List<String> next() throws IOException {
+            int c = in.read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new FormatException(recordLine, "Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        c = in.read();
+                        if (c != '"') {
+                            quoted = false; // Closing quote; look at the character after it normally
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+    }
+
+    // Minimal streaming JSON reader: just enough to walk an array of flat objects without loading the file.
+    private static class JsonReader {
+        private final CharInput in;
+        private int peeked = -2; // -2: nothing peeked yet
+        private long position;
+
+        JsonReader(Reader in) {
+            this.in = new CharInput(in);
+        }
+
+        void expect(char expected) throws IOException {
+            if (!consume(expected)) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        // Skips whitespace; consumes the character if it is the given one.
+        boolean consume(char expected) throws IOException {
+            if (peek() == expected) {
+                read();
+                return true;
+            }
+            return false;
+        }
+
+        String readString() throws IOException {
+            expect('"');
+            StringBuilder text = new StringBuilder();
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw error("Unterminated string");
+                } else if (c == '"') {
+                    return text.toString();
+                } else if (c == '\\') {
+                    int escaped = read();
+                    switch (escaped) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                            text.append((char) escaped);
+                            break;
+                        case 'b':
+                            text.append('\b');
+                            break;
+                        case 'f':
+                            text.append('\f');
+                            break;
+                        case 'n':
+                            text.append('\n');
+                            break;
+                        case 'r':
+                            text.append('\r');
+                            break;
+                        case 't':
+                            text.append('\t');
+                            break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(read(), 16);
+                                if (digit < 0) {
+                                    throw error("Bad \\u escape");
+                                }
+                                code = code * 16 + digit;
+                            }
+                            text.append((char) code);
+                            break;
+                        default:
+                            throw error("Bad escape");
+                    }
+                } else {
+                    text.append((char) c);
+                }
+            }
+        }
+
+        // A string, Boolean, number (as its text) or null. Nested objects and arrays are skipped (null).
+        Object readValue() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                return readString();
+            } else if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                read();
+                if (!consume(close)) {
+                    do {
+                        if (close == '}') {
+                            readString();
+                            expect(':');
+                        }
+                        readValue();
+                    } while (consume(','));
+                    expect(close);
+                }
+                return null;
+            }
+            StringBuilder word = new StringBuilder(); // true, false, null or a number
+            while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+                word.append((char) read());
+                c = peekRaw();
+            }
+            String text = word.toString();
+            if (text.equals("true") || text.equals("false")) {
+                return Boolean.valueOf(text);
+            } else if (text.equals("null")) {
+                return null;
+            } else if (!text.isEmpty() && (text.charAt(0) == '-' || Character.isDigit(text.charAt(0)))) {
+                return text;
+            }
+            throw error("Unexpected value \"" + text + "\"");
+        }
+
+        private int peek() throws IOException {
+            int c = peekRaw();
+            while (c != -1 && Character.isWhitespace(c)) {
+                read();
+                c = peekRaw();
+            }
+            return c;
+        }
+
+        private int peekRaw() throws IOException {
+            if (peeked == -2) {
+                peeked = in.read();
+            }
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peekRaw();
+            peeked = -2;
+            if (c != -1) {
+                position++;
+            }
+            return c;
+        }
+
+        private FormatException error(String message) {
+            return new FormatException(0, message + " at character " + position); // Row is filled in by the caller
+        }
+    }
+}
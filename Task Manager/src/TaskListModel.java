@@ -0,0 +1,657 @@
+import javax.swing.AbstractListModel;
+import javax.swing.SwingUtilities;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// ListModel for the task JList that reads the task store directly instead of copying it.
+// Each change notification from TaskFunctions becomes one fine-grained ListDataEvent,
+// so adding, deleting or toggling a task only repaints the affected row (bulk changes: the affected runs of rows).
+//
+// Changes can come from any thread, but Swing must only see them on the EDT and in the same order
+// as its events. So the model keeps the ids of the rows as of the last event it has applied
+// (8 bytes per row, no Task objects) and looks each row up in the store by id when it is painted.
+//
+// It can also show just the tasks matching a filter. The matches are searched off the EDT (TaskSearchIndex),
+// so by the time they arrive some changes may already have been applied here. Changes made since the filter
+// was requested are therefore remembered and replayed on top of the search result when it is shown.
+//
+// Instead of display order the list can show the tasks by due date, optionally grouped into overdue, due today,
+// upcoming and completed (see View). Those orders come from a SortedTaskView: built off the EDT on first use
+// (changes meanwhile are replayed on top, like for the filter), then kept sorted by every change event here, so
+// switching views later is instant. The JList pages through it by position like through the ids, so only the
+// rows on screen are ever looked up. A filter still lists its matches in display order.
+//
+// The model also caches the display text of recently painted rows for the cell renderer, so scrolling
+// does not re-format dates and concatenate strings on every paint. Change events invalidate it.
+public class TaskListModel extends AbstractListModel<Task> implements TaskListener {
+    private static final long serialVersionUID = 1L;
+    private static final int TEXT_CACHE_SIZE = 1024; // Power of two, far more than fit on screen
+    private static final int MAX_RUN_EVENTS = 64; // Bulk changes spread wider than this repaint the whole list
+    private static final String[] GROUP_NAMES = {"Overdue", "Due today", "Upcoming", "Completed"};
+
+    // The orders the list can be shown in (toString is the label in the GUI's view selector)
+    public enum View {
+        DISPLAY_ORDER("Order added"),
+        DUE_DATE("By due date"),
+        GROUPED("Grouped by due date");
+
+        private final String label;
+
+        View(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final TaskFunctions taskFunctionsRef;
+    // DS: growable array of task ids in display order, only touched on the EDT.
+    private long[] ids;
+    private int size;
+    // Filtered view: ids of the matching rows (in id order, like the full list), or null when showing everything.
+    private String filter;
+    private long[] shown;
+    private int shownSize;
+    // Latest filter requested but not shown yet, and the changes applied since it was requested.
+    private String pendingFilter;
+    private final List<Change> changesSinceRequest;
+    // View being shown, and the due date order behind DUE_DATE/GROUPED (null until first built). While it is
+    // being built the view asked for waits in pendingView and the changes applied meanwhile are kept for replay.
+    private View view = View.DISPLAY_ORDER;
+    private SortedTaskView sorted;
+    private boolean sorting;
+    private View pendingView;
+    private final List<Change> changesSinceSort;
+    // GROUPED: where the groups start in `sorted`. The incomplete part splits at "now" and at the next midnight,
+    // both only moved on by refreshGroups() so that changes in between never shift the headers on their own.
+    // Each group is listed under a header row, even when empty.
+    private long groupsAt; // Epoch minutes
+    private long groupsMidnight;
+    private int dueTodayFrom;
+    private int upcomingFrom;
+    // DS: direct-mapped render cache, slot = id % TEXT_CACHE_SIZE (rows next to each other never collide).
+    // Each entry remembers the completed flag and due date it was built for, since the text depends on them
+    // (a recurring task's due date moves on when an occurrence is completed).
+    private final long[] textIds;
+    private final String[] texts;
+    private final boolean[] textCompleted;
+    private final long[] textDue;
+
+    public TaskListModel(TaskFunctions taskFunctions) {
+        this.taskFunctionsRef = taskFunctions;
+        this.changesSinceRequest = new ArrayList<>();
+        this.changesSinceSort = new ArrayList<>();
+        this.textIds = new long[TEXT_CACHE_SIZE];
+        this.texts = new String[TEXT_CACHE_SIZE];
+        this.textCompleted = new boolean[TEXT_CACHE_SIZE];
+        this.textDue = new long[TEXT_CACHE_SIZE];
+        // Take the current rows and register for changes in one step, so nothing is missed or applied twice.
+        TaskStore.Frozen current = taskFunctions.subscribe(this);
+        ids = new long[Math.max(16, current.size())];
+        current.copyColumns(ids, null, null); // Ids only, read from the columns without making Tasks
+        size = current.size();
+    }
+
+    @Override
+    public int getSize() {
+        if (filter != null) {
+            return shownSize;
+        }
+        switch (view) {
+            case DUE_DATE:
+                return sorted.size();
+            case GROUPED:
+                return sorted.size() + GROUP_NAMES.length;
+            default:
+                return size;
+        }
+    }
+
+    // Null for a group header row, and for a row deleted on another thread whose event has not reached the EDT yet.
+    @Override
+    public Task getElementAt(int index) {
+        long id;
+        if (filter != null) {
+            id = shown[index];
+        } else if (view == View.DUE_DATE) {
+            id = sorted.idAt(index);
+        } else if (view == View.GROUPED) {
+            int group = groupOfRow(index);
+            if (index == groupStart(group) + group) {
+                return null;
+            }
+            id = sorted.idAt(index - group - 1);
+        } else {
+            id = ids[index];
+        }
+        return taskFunctionsRef.findTask(id);
+    }
+
+    public View getView() {
+        return view;
+    }
+
+    // EDT: the text of a group header row, e.g. "Overdue (3)", or null if the row is not a header.
+    public String getGroupHeader(int index) {
+        if (filter != null || view != View.GROUPED) {
+            return null;
+        }
+        int group = groupOfRow(index);
+        if (index != groupStart(group) + group) {
+            return null;
+        }
+        return GROUP_NAMES[group] + " (" + (groupStart(group + 1) - groupStart(group)) + ")";
+    }
+
+    // EDT: the user picked a view. Returns true if the due date order has to be built first: the caller then
+    // runs SortedTaskView.build(taskFunctions.getTasks()) off the EDT and hands the result to showSorted, and
+    // the list stays as it is until then.
+    public boolean requestView(View requested) {
+        if (requested != View.DISPLAY_ORDER && sorted == null) {
+            pendingView = requested;
+            if (sorting) {
+                return false; // Already being built
+            }
+            sorting = true;
+            changesSinceSort.clear();
+            return true;
+        }
+        pendingView = null;
+        switchTo(requested);
+        return false;
+    }
+
+    // EDT: takes the built due date order and shows the view waiting for it (if it is still wanted).
+    public void showSorted(SortedTaskView built) {
+        // Same as for the filter: each replayed change takes the tasks out and puts them back as they are now,
+        // which is right whether or not the snapshot already had them.
+        for (Change change : changesSinceSort) {
+            built.remove(change.tasks);
+            if (change.added) {
+                built.insert(change.tasks);
+            }
+        }
+        changesSinceSort.clear();
+        sorting = false;
+        sorted = built;
+        regroup(LocalDateTime.now());
+        if (pendingView != null) {
+            switchTo(pendingView);
+            pendingView = null;
+        }
+    }
+
+    // EDT, called every 30 seconds (a Swing Timer in TaskManagerGui): tasks cross from "upcoming" to "due today" to
+    // "overdue" as time passes, at most 30 seconds late.
+    // Nothing moves in the due date order itself, only the group headers shift, so the rows are just repainted.
+    public void refreshGroups() {
+        if (sorted == null) {
+            return;
+        }
+        int oldDueToday = dueTodayFrom;
+        int oldUpcoming = upcomingFrom;
+        regroup(LocalDateTime.now());
+        if (filter == null && view == View.GROUPED && (dueTodayFrom != oldDueToday || upcomingFrom != oldUpcoming)) {
+            fireContentsChanged(this, 0, getSize() - 1);
+        }
+    }
+
+    // EDT: the text to show for a task (Task.toString()), built once and reused until the task changes.
+    public String getDisplayText(Task task) {
+        long id = task.getId();
+        int slot = (int) id & (TEXT_CACHE_SIZE - 1);
+        boolean completed = task.isCompleted();
+        long due = task.isRecurring() ? task.getDueMinute() : 0; // One-off due dates never change
+        String text = texts[slot];
+        if (text == null || textIds[slot] != id || textCompleted[slot] != completed || textDue[slot] != due) {
+            text = task.toString();
+            texts[slot] = text;
+            textIds[slot] = id;
+            textCompleted[slot] = completed;
+            textDue[slot] = due;
+        }
+        return text;
+    }
+
+    // EDT: the user changed the filter text. An empty filter shows all tasks again right away; otherwise the
+    // caller searches for the matches and hands them to showFilter.
+    public void requestFilter(String query) {
+        String q = TaskSearchIndex.normalize(query);
+        changesSinceRequest.clear();
+        pendingFilter = q;
+        if (q == null && filter != null) {
+            int oldSize = shownSize;
+            filter = null;
+            shown = null;
+            replaceAll(oldSize, getSize());
+        }
+    }
+
+    // EDT: shows the search result for a requested filter, unless a newer filter has been requested since.
+    public void showFilter(String query, long[] matches) {
+        String q = TaskSearchIndex.normalize(query);
+        if (q == null || !q.equals(pendingFilter)) {
+            return;
+        }
+        int oldSize = getSize();
+        filter = q;
+        shown = Arrays.copyOf(matches, Math.max(16, matches.length));
+        shownSize = matches.length;
+        // The search saw the store at some point after the request. Replaying every change since the request
+        // in order leaves each of those tasks as of its last change, whichever side of the search it fell on.
+        for (Change change : changesSinceRequest) {
+            for (Task task : change.tasks) {
+                if (change.added) {
+                    showIfMatching(task);
+                } else {
+                    hide(task.getId());
+                }
+            }
+        }
+        changesSinceRequest.clear();
+        pendingFilter = null;
+        replaceAll(oldSize, shownSize);
+    }
+
+    // Called under the store's write lock: only post the change to the EDT here.
+    @Override
+    public void taskAdded(Task task, int index) {
+        long id = task.getId();
+        onEdt(() -> {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+            List<Task> added = Collections.singletonList(task);
+            record(added, true);
+            if (filter != null) {
+                int row = showIfMatching(task);
+                if (row >= 0) {
+                    fireIntervalAdded(this, row, row);
+                }
+            } else if (view == View.DISPLAY_ORDER) {
+                fireIntervalAdded(this, index, index);
+            }
+            resort(added, true);
+        });
+    }
+
+    // Bulk add (import, undo of a bulk delete): one EDT update for the whole batch, merged into the ids in one
+    // pass, and one list event per run of adjacent rows.
+    @Override
+    public void tasksAdded(List<Task> tasks, int[] indexes) {
+        onEdt(() -> {
+            int count = tasks.size();
+            int oldSize = size;
+            if (size + count > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + count));
+            }
+            // Fill from the back so every old id is moved once, straight to its final position.
+            int from = size - 1;
+            int next = count - 1;
+            for (int to = size + count - 1; next >= 0; to--) {
+                if (to == indexes[next]) {
+                    ids[to] = tasks.get(next--).getId();
+                } else {
+                    ids[to] = ids[from--];
+                }
+            }
+            size += count;
+            record(tasks, true);
+            if (filter == null) {
+                if (view == View.DISPLAY_ORDER) {
+                    fireRuns(indexes, oldSize, size, true);
+                }
+            } else if (count <= MAX_RUN_EVENTS) {
+                for (Task task : tasks) {
+                    int row = showIfMatching(task);
+                    if (row >= 0) {
+                        fireIntervalAdded(this, row, row);
+                    }
+                }
+            } else {
+                int oldShown = shownSize;
+                long[] matching = new long[count];
+                int matches = 0;
+                for (Task task : tasks) { // In id order, like `shown`
+                    if (TaskSearchIndex.matches(task, filter)) {
+                        matching[matches++] = task.getId();
+                    }
+                }
+                mergeShown(matching, matches);
+                replaceAll(oldShown, shownSize);
+            }
+            resort(tasks, true);
+        });
+    }
+
+    @Override
+    public void taskRemoved(Task task, int index) {
+        onEdt(() -> {
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            List<Task> removed = Collections.singletonList(task);
+            record(removed, false);
+            forgetText(task.getId());
+            if (filter != null) {
+                int row = hide(task.getId());
+                if (row >= 0) {
+                    fireIntervalRemoved(this, row, row);
+                }
+            } else if (view == View.DISPLAY_ORDER) {
+                fireIntervalRemoved(this, index, index);
+            }
+            resort(removed, false);
+        });
+    }
+
+    // Bulk delete: one EDT update, the ids compacted in one pass, one list event per run of adjacent rows.
+    @Override
+    public void tasksRemoved(List<Task> tasks, int[] indexes) {
+        onEdt(() -> {
+            int count = tasks.size();
+            int oldSize = size;
+            int kept = indexes[0];
+            int next = 0;
+            for (int i = indexes[0]; i < size; i++) {
+                if (next < count && i == indexes[next]) {
+                    next++;
+                } else {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+            record(tasks, false);
+            for (Task task : tasks) {
+                forgetText(task.getId());
+            }
+            if (filter == null) {
+                if (view == View.DISPLAY_ORDER) {
+                    fireRuns(indexes, oldSize, size, false);
+                }
+            } else if (count <= MAX_RUN_EVENTS) {
+                for (int i = count - 1; i >= 0; i--) {
+                    int row = hide(tasks.get(i).getId());
+                    if (row >= 0) {
+                        fireIntervalRemoved(this, row, row);
+                    }
+                }
+            } else {
+                int oldShown = shownSize;
+                int keptShown = 0;
+                int j = 0;
+                for (int i = 0; i < shownSize; i++) { // Both in id order: walk them side by side
+                    long id = shown[i];
+                    while (j < count && tasks.get(j).getId() < id) {
+                        j++;
+                    }
+                    if (j == count || tasks.get(j).getId() != id) {
+                        shown[keptShown++] = id;
+                    }
+                }
+                shownSize = keptShown;
+                replaceAll(oldShown, shownSize);
+            }
+            resort(tasks, false);
+        });
+    }
+
+    @Override
+    public void taskUpdated(Task task, int index) {
+        onEdt(() -> {
+            forgetText(task.getId());
+            if (filter != null || view == View.DISPLAY_ORDER) {
+                int row = filter == null ? index : Arrays.binarySearch(shown, 0, shownSize, task.getId());
+                if (row >= 0) {
+                    fireContentsChanged(this, row, row);
+                }
+            }
+            resort(Collections.singletonList(task), true); // Completing a task moves it in the due date order
+        });
+    }
+
+    // Runs a change on the EDT, timed into TaskMetrics.REFRESH_TASK_LIST: the model's own bookkeeping plus the list
+    // events it fires, which is when the JList updates its selection and layout.
+    private static void onEdt(Runnable update) {
+        SwingUtilities.invokeLater(() -> {
+            long start = System.nanoTime();
+            update.run();
+            TaskMetrics.REFRESH_TASK_LIST.recordSince(start);
+        });
+    }
+
+    // Applies a change to the due date order: the tasks are taken out and, unless deleted, put back where their
+    // current due date and completed flag sort them. When that order is on screen the rows they left and the
+    // rows they went to are fired like any other change (a task that stays put is just repainted).
+    private void resort(List<Task> tasks, boolean present) {
+        if (sorting) {
+            changesSinceSort.add(new Change(tasks, present));
+        }
+        if (sorted == null) {
+            return;
+        }
+        boolean showing = filter == null && view != View.DISPLAY_ORDER;
+        int oldSize = getSize();
+        int[] oldRows = sorted.remove(tasks);
+        for (int i = 0; i < oldRows.length; i++) {
+            oldRows[i] = rowOf(oldRows[i]); // Group starts as they were before the change
+        }
+        regroup();
+        int removedSize = getSize();
+        int[] newRows = present ? sorted.insert(tasks) : new int[0];
+        if (present) {
+            regroup();
+            for (int i = 0; i < newRows.length; i++) {
+                newRows[i] = rowOf(newRows[i]);
+            }
+        }
+        if (!showing) {
+            return;
+        }
+        if (oldRows.length == 1 && newRows.length == 1 && oldRows[0] == newRows[0]) {
+            fireContentsChanged(this, oldRows[0], oldRows[0]);
+        } else {
+            if (oldRows.length > 0) {
+                fireRuns(oldRows, oldSize, removedSize, false);
+            }
+            if (newRows.length > 0) {
+                fireRuns(newRows, removedSize, getSize(), true);
+            }
+        }
+        if (view == View.GROUPED) {
+            for (int group = 0; group < GROUP_NAMES.length; group++) { // Their counts changed
+                int header = groupStart(group) + group;
+                fireContentsChanged(this, header, header);
+            }
+        }
+    }
+
+    private void switchTo(View requested) {
+        if (requested == view) {
+            return;
+        }
+        int oldSize = getSize();
+        view = requested;
+        if (filter == null) {
+            replaceAll(oldSize, getSize());
+        }
+    }
+
+    // Splits the incomplete tasks at the given time and at the following midnight.
+    private void regroup(LocalDateTime now) {
+        groupsAt = Task.toEpochMinute(now);
+        groupsMidnight = Task.toEpochMinute(now.toLocalDate().plusDays(1).atStartOfDay());
+        regroup();
+    }
+
+    // Finds the group starts again after a change, keeping the split times.
+    private void regroup() {
+        dueTodayFrom = sorted.firstDueAtOrAfter(groupsAt);
+        upcomingFrom = sorted.firstDueAtOrAfter(groupsMidnight);
+    }
+
+    // First position in `sorted` of a group (0 overdue, 1 due today, 2 upcoming, 3 completed, 4 = the end).
+    private int groupStart(int group) {
+        switch (group) {
+            case 0:
+                return 0;
+            case 1:
+                return dueTodayFrom;
+            case 2:
+                return upcomingFrom;
+            case 3:
+                return sorted.getCompletedFrom();
+            default:
+                return sorted.size();
+        }
+    }
+
+    // GROUPED: row of a position in `sorted` (the headers of its group and the groups before it come first).
+    // In DUE_DATE the row is the position.
+    private int rowOf(int position) {
+        if (view != View.GROUPED) {
+            return position;
+        }
+        int group = GROUP_NAMES.length - 1;
+        while (group > 0 && groupStart(group) > position) {
+            group--;
+        }
+        return position + group + 1;
+    }
+
+    // GROUPED: the group a row (header or task) belongs to.
+    private int groupOfRow(int row) {
+        int group = GROUP_NAMES.length - 1;
+        while (group > 0 && groupStart(group) + group > row) {
+            group--;
+        }
+        return group;
+    }
+
+    private void forgetText(long id) {
+        int slot = (int) id & (TEXT_CACHE_SIZE - 1);
+        if (textIds[slot] == id) {
+            texts[slot] = null;
+        }
+    }
+
+    private void record(List<Task> tasks, boolean added) {
+        if (pendingFilter != null) {
+            changesSinceRequest.add(new Change(tasks, added));
+        }
+    }
+
+    // Adds a matching task to the filtered rows; returns its row, or -1 if it does not match or is already there.
+    private int showIfMatching(Task task) {
+        int row = Arrays.binarySearch(shown, 0, shownSize, task.getId());
+        if (row >= 0 || !TaskSearchIndex.matches(task, filter)) {
+            return -1;
+        }
+        row = -row - 1;
+        if (shownSize == shown.length) {
+            shown = Arrays.copyOf(shown, shownSize * 2);
+        }
+        System.arraycopy(shown, row, shown, row + 1, shownSize - row);
+        shown[row] = task.getId();
+        shownSize++;
+        return row;
+    }
+
+    // Drops a task from the filtered rows; returns the row it had, or -1.
+    private int hide(long id) {
+        int row = Arrays.binarySearch(shown, 0, shownSize, id);
+        if (row < 0) {
+            return -1;
+        }
+        System.arraycopy(shown, row + 1, shown, row, shownSize - row - 1);
+        shownSize--;
+        return row;
+    }
+
+    // Merges sorted new ids into the filtered rows in one pass from the back (ids already there are skipped).
+    private void mergeShown(long[] added, int count) {
+        if (shownSize + count > shown.length) {
+            shown = Arrays.copyOf(shown, Math.max(shown.length * 2, shownSize + count));
+        }
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (Arrays.binarySearch(shown, 0, shownSize, added[i]) < 0) {
+                added[distinct++] = added[i];
+            }
+        }
+        int from = shownSize - 1;
+        int next = distinct - 1;
+        for (int to = shownSize + distinct - 1; next >= 0; to--) {
+            if (from < 0 || added[next] > shown[from]) {
+                shown[to] = added[next--];
+            } else {
+                shown[to] = shown[from--];
+            }
+        }
+        shownSize += distinct;
+    }
+
+    // One event per run of adjacent rows in a bulk change (ascending indexes). Removals go last run first so the
+    // indexes of the runs before it still hold. A batch scattered over many runs becomes one whole-list change.
+    private void fireRuns(int[] indexes, int oldSize, int newSize, boolean added) {
+        int runs = 1;
+        for (int i = 1; i < indexes.length; i++) {
+            if (indexes[i] != indexes[i - 1] + 1) {
+                runs++;
+            }
+        }
+        if (runs > MAX_RUN_EVENTS) {
+            replaceAll(oldSize, newSize);
+            return;
+        }
+        if (added) {
+            for (int first = 0; first < indexes.length; ) {
+                int last = first;
+                while (last + 1 < indexes.length && indexes[last + 1] == indexes[last] + 1) {
+                    last++;
+                }
+                fireIntervalAdded(this, indexes[first], indexes[last]);
+                first = last + 1;
+            }
+        } else {
+            for (int last = indexes.length - 1; last >= 0; ) {
+                int first = last;
+                while (first > 0 && indexes[first - 1] == indexes[first] - 1) {
+                    first--;
+                }
+                fireIntervalRemoved(this, indexes[first], indexes[last]);
+                last = first - 1;
+            }
+        }
+    }
+
+    // The whole list changed (filter or view switched): tell the JList all rows went away and the new ones came in.
+    private void replaceAll(int oldSize, int newSize) {
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        if (newSize > 0) {
+            fireIntervalAdded(this, 0, newSize - 1);
+        }
+    }
+
+    // One change applied while a filter search or a sort was in flight: tasks added (or updated, for the sort)
+    // or removed.
+    private static class Change {
+        private final List<Task> tasks;
+        private final boolean added;
+
+        Change(List<Task> tasks, boolean added) {
+            this.tasks = tasks;
+            this.added = added;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.util.List;
+
+// Callback interface for anything that needs to react when the task list changes
+// (the reminder engine, the journal, the GUI list model). TaskFunctions calls these after each change.
+// index is the task's position in display order (TaskFunctions.getTasks()) after an add/update,
+// and the position it had before a remove.
+public interface TaskListener {
+    // A task was added, or a deleted task was restored by undo
+    void taskAdded(Task task, int index);
+
+    // A task was deleted
+    void taskRemoved(Task task, int index);
+
+    // A task's state changed in place (e.g. completed flag toggled)
+    void taskUpdated(Task task, int index);
+
+    // Several tasks were added in one change (bulk add, undo of a bulk delete). indexes are ascending and give
+    // each task's position after the whole batch is in. By default each task is reported through taskAdded
+    // (in this order every index is valid when it is reported); listeners that can do better override it.
+    default void tasksAdded(List<Task> tasks, int[] indexes) {
+        for (int i = 0; i < tasks.size(); i++) {
+            taskAdded(tasks.get(i), indexes[i]);
+        }
+    }
+
+    // Several tasks were deleted in one change. indexes are ascending and give each task's position before the
+    // batch was removed. By default each task is reported through taskRemoved, last one first (so the earlier
+    // indexes are still valid when they are reported).
+    default void tasksRemoved(List<Task> tasks, int[] indexes) {
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            taskRemoved(tasks.get(i), indexes[i]);
+        }
+    }
+}
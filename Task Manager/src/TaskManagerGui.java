@@ -1,8 +1,24 @@
 // Importing necessary Swing GUI and layout packages
 import javax.swing.*;
+import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.font.TextAttribute;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 // Main GUI class for Task Manager
 public class TaskManagerGui {
@@ -25,16 +41,38 @@ public class TaskManagerGui {
     // GUI components
     private JFrame frame; // Window frame that holds all GUI components
     private JList<Task> taskJList; // JList shows the list of tasks (uses ListModel internally — a data structure)
-    private JButton addTaskButton, deleteTaskButton, toggleCompleteButton, undoButton; // Four buttons
-    private JButton Bleh;
+    private TaskListModel taskListModel; // ListModel that reads the task store directly
+    private JTextField filterField; // Narrows the list to tasks whose name contains the typed text
+    private JComboBox<TaskListModel.View> viewSelector; // Display order, by due date, or grouped by due date
+    private JButton addTaskButton, deleteTaskButton, toggleCompleteButton, undoButton, redoButton; // Five buttons
+    private JMenuItem importItem, exportItem; // File menu
     // References to other classes (objects)
     private TaskFunctions taskFunctionsRef; // Logic handler for tasks (add, delete, etc.)
     private ReminderManager reminderManagerRef; // Handles reminders
+    // Search runs on its own thread so typing never waits for it; only the latest query is worth running.
+    private final ExecutorService searchExecutor;
+    private final AtomicReference<String> latestQuery = new AtomicReference<>();
+    private TaskSearchIndex searchIndex; // Only used on the search thread
+    // The due date order is sorted on its own thread the first time a sorted view is picked
+    private final ExecutorService viewExecutor;
 
     // Constructor to set up everything when the object is created
     public TaskManagerGui(TaskFunctions taskFunctions, ReminderManager reminderManager) {
         this.taskFunctionsRef = taskFunctions; // Store passed object (dependency injection)
         this.reminderManagerRef = reminderManager;
+        this.searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-search");
+            thread.setDaemon(true); // Never keeps the application alive
+            return thread;
+        });
+        this.viewExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-views");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Build the search index in the background right away; the first search queues up behind it.
+        // The index also purges deleted tasks on this thread, between searches.
+        searchExecutor.execute(() -> searchIndex = new TaskSearchIndex(taskFunctionsRef, searchExecutor));
 
         //methods
         initComponents(); // Create and style the GUI
@@ -62,48 +100,83 @@ public class TaskManagerGui {
         headerPanel.add(title); // Add label to panel
         frame.add(headerPanel, BorderLayout.NORTH); // Place header panel at top
 
+        // File menu for moving tasks in and out in bulk (CSV or JSON)
+        JMenuBar menuBar = new JMenuBar();
+        JMenu fileMenu = new JMenu("File");
+        importItem = new JMenuItem("Import Tasks...");
+        exportItem = new JMenuItem("Export Tasks...");
+        fileMenu.add(importItem);
+        fileMenu.add(exportItem);
+        menuBar.add(fileMenu);
+        frame.setJMenuBar(menuBar);
+
         // --------------------- DATA STRUCTURE USED HERE -------------------------
-        // Create task list from array of tasks
-        // getTasks() likely returns a LinkedList<Task> → convert it to Task[] array using toArray
-        taskJList = new JList<>(taskFunctionsRef.getTasks().toArray(new Task[0]));
-        // LinkedList<Task> → Task[] → passed to JList (JList uses ListModel internally)
+        // The JList reads the task store through TaskListModel (no copying into an array).
+        // The model turns each add/delete/toggle into an event for just that row.
+        taskListModel = new TaskListModel(taskFunctionsRef);
+        taskJList = new JList<>(taskListModel);
 
         taskJList.setBackground(LIST_BG); // Set background of task list
-        taskJList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION); // Only one task can be selected at a time
+        // Several tasks can be selected (Shift/Ctrl-click) and deleted or toggled together
+        taskJList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         taskJList.setFont(new Font("Segoe UI", Font.PLAIN, 14)); // Font size and style
         taskJList.setCellRenderer(new TaskCellRenderer()); // Apply custom style for each item
+        // All rows have the same height, so the JList never has to measure every cell of a huge list
+        taskJList.setPrototypeCellValue(new Task(0, "Prototype task name for row height", LocalDateTime.now()));
 
         JScrollPane scrollPane = new JScrollPane(taskJList); // Scrollable container for list
         scrollPane.setBorder(BorderFactory.createCompoundBorder(
                 new EmptyBorder(15, 15, 15, 15),
                 BorderFactory.createLineBorder(new Color(200, 200, 220), 1)
         ));
-        frame.add(scrollPane, BorderLayout.CENTER); // Add scrollable task list to center
+
+        // ---------------- Filter box and view selector -------------------
+        JPanel filterPanel = new JPanel(new BorderLayout(10, 0)); // "Search:" label + text field + view above the list
+        filterPanel.setBackground(BACKGROUND_COLOR);
+        filterPanel.setBorder(new EmptyBorder(0, 15, 0, 15));
+        JLabel filterLabel = new JLabel("Search:");
+        filterLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        filterLabel.setForeground(TITLE_COLOR);
+        filterField = new JTextField();
+        filterField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        viewSelector = new JComboBox<>(TaskListModel.View.values());
+        viewSelector.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        filterPanel.add(filterLabel, BorderLayout.WEST);
+        filterPanel.add(filterField, BorderLayout.CENTER);
+        filterPanel.add(viewSelector, BorderLayout.EAST);
+
+        JPanel listPanel = new JPanel(new BorderLayout()); // Filter box on top, task list below
+        listPanel.setBackground(BACKGROUND_COLOR);
+        listPanel.add(filterPanel, BorderLayout.NORTH);
+        listPanel.add(scrollPane, BorderLayout.CENTER);
+        frame.add(listPanel, BorderLayout.CENTER); // Add filter box and scrollable task list to center
 
         // ---------------- Buttons -------------------
         JPanel buttonPanel = new JPanel(); // Bottom panel with buttons
         buttonPanel.setBackground(PANEL_COLOR);
         buttonPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
         buttonPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
-        buttonPanel.setLayout(new GridLayout(1, 4, 15, 0)); // 1 row, 4 columns, spacing between buttons
+        buttonPanel.setLayout(new GridLayout(1, 5, 15, 0)); // 1 row, 5 columns, spacing between buttons
 
         // Create and style buttons
         addTaskButton = createStyledButton("Add Task", ADD_BUTTON);
         deleteTaskButton = createStyledButton("Delete Task", DELETE_BUTTON);
         toggleCompleteButton = createStyledButton("Mark Complete", TOGGLE_BUTTON);
-        undoButton = createStyledButton("Undo Delete", UNDO_BUTTON_COLOR);
+        undoButton = createStyledButton("Undo", UNDO_BUTTON_COLOR);
+        redoButton = createStyledButton("Redo", UNDO_BUTTON_COLOR);
 
         // Disable buttons initially (until task is selected)
         deleteTaskButton.setEnabled(false);
         toggleCompleteButton.setEnabled(false);
         undoButton.setEnabled(false);
+        redoButton.setEnabled(false);
 
         // Add buttons to button panel and then add panel to the frame
         buttonPanel.add(addTaskButton);
         buttonPanel.add(deleteTaskButton);
         buttonPanel.add(undoButton);
+        buttonPanel.add(redoButton);
         buttonPanel.add(toggleCompleteButton);
-        frame.add(Bleh);
         frame.add(buttonPanel, BorderLayout.SOUTH); // Place at bottom
     }
 
@@ -125,20 +198,62 @@ public class TaskManagerGui {
     // Add click functionality to all buttons
     private void setupActionListeners() {
         // When "Add Task" is clicked, open dialog
-        addTaskButton.addActionListener(e -> showAddTaskDialog());
+        addTaskButton.addActionListener(e -> change(this::showAddTaskDialog));
 
         // When "Delete Task" is clicked, remove selected task
-        deleteTaskButton.addActionListener(e -> deleteSelectedTask());
+        deleteTaskButton.addActionListener(e -> change(this::deleteSelectedTask));
 
         // Toggle complete/incomplete
-        toggleCompleteButton.addActionListener(e -> toggleCompleteSelectedTask());
+        toggleCompleteButton.addActionListener(e -> change(this::toggleCompleteSelectedTask));
+
+        // Undo/redo the last add, delete or toggle
+        undoButton.addActionListener(e -> change(this::undo));
+        redoButton.addActionListener(e -> change(this::redo));
+
+        // Ctrl+Z / Ctrl+Y anywhere in the window (the filter box keeps its own text editing keys)
+        JRootPane rootPane = frame.getRootPane();
+        InputMap keys = rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        keys.put(KeyStroke.getKeyStroke("control Z"), "undo");
+        keys.put(KeyStroke.getKeyStroke("control Y"), "redo");
+        rootPane.getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                change(TaskManagerGui.this::undo);
+            }
+        });
+        rootPane.getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                change(TaskManagerGui.this::redo);
+            }
+        });
 
-        // Undo last deleted task
-        undoButton.addActionListener(e -> {
-            taskFunctionsRef.undoDelete(); // Restore deleted task
-            refreshTaskList(); // Update task list
+        // Bulk import/export from the File menu
+        importItem.addActionListener(e -> importTasks());
+        exportItem.addActionListener(e -> exportTasks());
+
+        // Narrow the list as the user types in the filter box
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filterChanged();
+            }
         });
 
+        // Switch the order of the list; the grouped view's "overdue"/"due today" split follows the clock
+        viewSelector.addActionListener(e -> viewChanged());
+        new Timer(30_000, e -> taskListModel.refreshGroups()).start();
+
         // Enable/disable buttons when selection changes
         taskJList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -147,12 +262,135 @@ public class TaskManagerGui {
         });
     }
 
+    // Filter text changed: an empty filter shows everything at once, otherwise search on the search thread.
+    private void filterChanged() {
+        String query = filterField.getText();
+        taskListModel.requestFilter(query);
+        if (TaskSearchIndex.normalize(query) == null) {
+            latestQuery.set(null);
+            updateButtonsState();
+            return;
+        }
+        latestQuery.set(query);
+        searchExecutor.execute(this::runSearch);
+    }
+
+    // Search thread: runs the newest query (keystrokes typed meanwhile are skipped) and shows the result on the EDT.
+    private void runSearch() {
+        String query = latestQuery.getAndSet(null);
+        if (query == null) {
+            return; // An earlier run already picked up the newest query
+        }
+        long[] matches = searchIndex.search(query);
+        SwingUtilities.invokeLater(() -> {
+            taskListModel.showFilter(query, matches);
+            updateButtonsState();
+        });
+    }
+
+    // View picked: shown at once if its order is already kept, otherwise sorted on the view thread first
+    // (the list keeps its current order until then).
+    private void viewChanged() {
+        TaskListModel.View view = (TaskListModel.View) viewSelector.getSelectedItem();
+        if (taskListModel.requestView(view)) {
+            frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            viewExecutor.execute(() -> {
+                SortedTaskView sorted = SortedTaskView.build(taskFunctionsRef.getTasks());
+                SwingUtilities.invokeLater(() -> {
+                    taskListModel.showSorted(sorted);
+                    frame.setCursor(Cursor.getDefaultCursor());
+                    updateButtonsState();
+                });
+            });
+        } else {
+            updateButtonsState();
+        }
+    }
+
+    // Pick a CSV/JSON file and import it on a background thread. The list updates once per import batch
+    // (TaskImporter.BATCH_SIZE rows), so a large file shows up as it is read; one undo takes back the whole import.
+    private void importTasks() {
+        JFileChooser chooser = createFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        importItem.setEnabled(false); // One import at a time
+        runInBackground("task-import", () -> {
+            String message;
+            int type = JOptionPane.INFORMATION_MESSAGE;
+            try {
+                BatchResult result = new TaskImporter(taskFunctionsRef).importFile(file);
+                StringBuilder text = new StringBuilder("Imported " + result.getAddedCount() + " tasks.");
+                if (result.getErrorCount() > 0) {
+                    type = JOptionPane.WARNING_MESSAGE;
+                    text.append("\n").append(result.getErrorCount()).append(" rows were skipped:");
+                    for (BatchResult.RowError error : result.getErrors().subList(0, Math.min(10, result.getErrors().size()))) {
+                        text.append("\n").append(error);
+                    }
+                    if (result.getErrorCount() > 10) {
+                        text.append("\n...");
+                    }
+                }
+                message = text.toString();
+            } catch (IOException ex) {
+                message = "Could not read " + file + ": " + ex.getMessage();
+                type = JOptionPane.ERROR_MESSAGE;
+            } catch (UncheckedIOException ex) { // Shared-store mode: the task list could not be written
+                message = "Import stopped: " + ex.getMessage() + " (" + ex.getCause().getMessage() + ")";
+                type = JOptionPane.ERROR_MESSAGE;
+            }
+            String shownMessage = message;
+            int shownType = type;
+            SwingUtilities.invokeLater(() -> {
+                importItem.setEnabled(true);
+                updateButtonsState();
+                JOptionPane.showMessageDialog(frame, shownMessage, "Import Tasks", shownType);
+            });
+        });
+    }
+
+    // Pick a file and write all tasks to it (.json for JSON, anything else CSV) on a background thread.
+    private void exportTasks() {
+        JFileChooser chooser = createFileChooser();
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        runInBackground("task-export", () -> {
+            String message;
+            int type = JOptionPane.INFORMATION_MESSAGE;
+            try {
+                message = "Exported " + new TaskExporter(taskFunctionsRef).exportFile(file) + " tasks to " + file;
+            } catch (IOException ex) {
+                message = "Could not write " + file + ": " + ex.getMessage();
+                type = JOptionPane.ERROR_MESSAGE;
+            }
+            String shownMessage = message;
+            int shownType = type;
+            SwingUtilities.invokeLater(() ->
+                    JOptionPane.showMessageDialog(frame, shownMessage, "Export Tasks", shownType));
+        });
+    }
+
+    private JFileChooser createFileChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Task files (CSV, JSON)", "csv", "json"));
+        return chooser;
+    }
+
+    private void runInBackground(String name, Runnable work) {
+        Thread thread = new Thread(work, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     // Show message when app starts
     private void showWelcomeMessage() {
         SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,
-                "Add new tasks with due dates and use the 'Undo Delete' feature!\n" +
+                "Add new tasks with due dates, and undo/redo any change with Ctrl+Z / Ctrl+Y!\n" +
                         "Due date format: yyyy-MM-dd HH:mm (e.g., " + LocalDateTime.now().format(Task.formatter) + ")\n" +
-                        "You will be notified 10 minutes before a task is due.",
+                        "You will be reminded 10 minutes before a task is due (or as set for each task).",
                 "Welcome to Simple Task Manager",
                 JOptionPane.INFORMATION_MESSAGE));
     }
@@ -162,11 +400,11 @@ public class TaskManagerGui {
         frame.setVisible(true); // Make frame visible
     }
 
-    // Refresh task list view (reloads task data from LinkedList to JList)
+    // Refresh task list view after an operation
     private void refreshTaskList() {
         // ------------------- DATA STRUCTURE AGAIN ----------------------
-        // Convert the LinkedList<Task> into Task[] again
-        taskJList.setListData(taskFunctionsRef.getTasks().toArray(new Task[0]));
+        // No need to reload the list: TaskListModel already fired an event for the changed row
+        // (and times that update into TaskMetrics.REFRESH_TASK_LIST)
         updateButtonsState(); // Refresh button state
     }
 
@@ -177,12 +415,14 @@ public class TaskManagerGui {
         deleteTaskButton.setEnabled(taskSelected);
         toggleCompleteButton.setEnabled(taskSelected);
         undoButton.setEnabled(taskFunctionsRef.isUndoAvailable()); // Enable if undo possible
+        redoButton.setEnabled(taskFunctionsRef.isRedoAvailable()); // Enable if something was undone
 
         if (taskSelected) {
-            Task selectedTask = taskJList.getSelectedValue();
+            Task selectedTask = taskJList.getSelectedValue(); // First selected row decides the label
             if (selectedTask != null) {
                 toggleCompleteButton.setText(
-                        selectedTask.isCompleted() ? "Mark Incomplete" : "Mark Complete"
+                        selectedTask.isCompleted() ? "Mark Incomplete"
+                                : selectedTask.isRecurring() ? "Complete Occurrence" : "Mark Complete"
                 );
             }
         } else {
@@ -190,6 +430,18 @@ public class TaskManagerGui {
         }
     }
 
+    // Runs a change asked for from a button or key. In shared-store mode a change fails if the shared task list
+    // cannot be reached; say so rather than leave the exception to the event thread.
+    private void change(Runnable action) {
+        try {
+            action.run();
+        } catch (UncheckedIOException ex) {
+            JOptionPane.showMessageDialog(frame, ex.getMessage() + "\n" + ex.getCause().getMessage(),
+                    "Shared Task List", JOptionPane.ERROR_MESSAGE);
+            refreshTaskList();
+        }
+    }
+
     // Popup input boxes to add a new task
     private void showAddTaskDialog() {
         String name = JOptionPane.showInputDialog(frame, "Enter Task Name:", "Add Task", JOptionPane.PLAIN_MESSAGE);
@@ -198,70 +450,164 @@ public class TaskManagerGui {
         String dueStr = JOptionPane.showInputDialog(frame, "Enter Due Date (yyyy-MM-dd HH:mm):", "Add Task", JOptionPane.PLAIN_MESSAGE);
         if (dueStr == null || dueStr.trim().isEmpty()) return;
 
-        if (taskFunctionsRef.addTask(name, dueStr)) {
+        // Lead time of the reminder, pre-filled with the default
+        Object remindStr = JOptionPane.showInputDialog(frame, "Remind how many minutes before? (0 = no reminder)",
+                "Add Task", JOptionPane.PLAIN_MESSAGE, null, null, String.valueOf(Task.DEFAULT_REMINDER_MINUTES));
+        if (remindStr == null) return;
+        int reminderMinutes;
+        try {
+            reminderMinutes = Integer.parseInt(remindStr.toString().trim());
+        } catch (NumberFormatException ex) {
+            reminderMinutes = -1;
+        }
+        if (!Task.isValidReminderMinutes(reminderMinutes)) {
+            JOptionPane.showMessageDialog(frame, "Reminder must be a number of minutes from 0 to " + Task.MAX_REMINDER_MINUTES,
+                    "Format Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Repeat rule; left blank the task happens once
+        String repeat = JOptionPane.showInputDialog(frame,
+                "Repeat? (e.g. every day, weekdays, every 2 weeks on mon,thu until 2025-12-31 18:00; blank = once)",
+                "Add Task", JOptionPane.PLAIN_MESSAGE);
+        if (repeat == null) return;
+        try {
+            Recurrence.parse(repeat);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(frame, ex.getMessage(), "Format Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        if (taskFunctionsRef.addTask(name, dueStr, reminderMinutes, repeat)) {
             refreshTaskList(); // Add successful → refresh display
         } else {
-            JOptionPane.showMessageDialog(frame, "Invalid date/time format. Please use yyyy-MM-dd HH:mm", "Format Error", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(frame, "Invalid date/time format (please use yyyy-MM-dd HH:mm), or the repeat rule ends before the due date",
+                    "Format Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    // Delete the selected task after confirmation
+    // Delete the selected tasks after confirmation (one undo brings them all back)
     private void deleteSelectedTask() {
-        Task selectedTask = taskJList.getSelectedValue();
-        if (selectedTask != null) {
-            int confirm = JOptionPane.showConfirmDialog(frame,
-                    "Are you sure you want to delete this task?\n" + selectedTask.toString(),
+        List<Task> selected = selectedTasks();
+        if (!selected.isEmpty()) {
+            String message = selected.size() == 1
+                    ? "Are you sure you want to delete this task?\n" + selected.get(0).toString()
+                    : "Are you sure you want to delete these " + selected.size() + " tasks?";
+            int confirm = JOptionPane.showConfirmDialog(frame, message,
                     "Confirm Delete", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
 
             if (confirm == JOptionPane.YES_OPTION) {
-                taskFunctionsRef.deleteTask(selectedTask); // Delete from LinkedList
-                reminderManagerRef.taskDeleted(selectedTask); // Cancel reminder
+                taskFunctionsRef.deleteTasks(selected); // Delete from the store (reminders are cancelled via TaskListener)
+                taskJList.clearSelection();
                 refreshTaskList(); // Refresh UI
             }
         }
     }
 
-    // Toggle task's completion status (done or not)
+    // Toggle the selected tasks' completion status (done or not)
     private void toggleCompleteSelectedTask() {
-        Task selectedTask = taskJList.getSelectedValue();
-        if (selectedTask != null) {
-            taskFunctionsRef.toggleComplete(selectedTask); // Flip boolean flag
+        List<Task> selected = selectedTasks();
+        if (!selected.isEmpty()) {
+            taskFunctionsRef.toggleComplete(selected); // Flip boolean flags as one change
             refreshTaskList();
         }
     }
 
-    // Custom list renderer to show completed tasks with strikethrough
-    private static class TaskCellRenderer extends DefaultListCellRenderer {
+    private void undo() {
+        taskFunctionsRef.undo(); // Revert the last add/delete/toggle
+        refreshTaskList(); // Update task list
+    }
+
+    private void redo() {
+        taskFunctionsRef.redo(); // Do the last undone change again
+        refreshTaskList();
+    }
+
+    // Selected tasks, skipping rows deleted on another thread whose event has not arrived yet
+    private List<Task> selectedTasks() {
+        List<Task> selected = new ArrayList<>();
+        for (Task task : taskJList.getSelectedValuesList()) {
+            if (task != null) {
+                selected.add(task);
+            }
+        }
+        return selected;
+    }
+
+    // Custom list renderer to show completed tasks with strikethrough (package-private for the benchmarks)
+    // It runs for every visible row on every repaint, so it allocates nothing per call:
+    // - the text comes from TaskListModel's render cache instead of Task.toString()
+    // - strikethrough is a font attribute, not <html><s>...</s></html> (no HTML parsing on each paint)
+    // - colors and borders are created once
+    static class TaskCellRenderer extends DefaultListCellRenderer {
+        private static final Color TEXT_COLOR = new Color(60, 70, 100);
+        private static final Color COMPLETED_TEXT_COLOR = new Color(120, 120, 140);
+        private static final Border PADDING = BorderFactory.createEmptyBorder(5, 10, 5, 10);
+        private static final Border SELECTED_BORDER = BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(new Color(100, 140, 220), 1),
+                BorderFactory.createEmptyBorder(4, 9, 4, 9)
+        );
+        private static final Map<TextAttribute, Object> STRIKETHROUGH =
+                Collections.singletonMap(TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON);
+
+        private Font plainFont; // The list's font, and its strikethrough and bold versions derived once from it
+        private Font struckFont;
+        private Font boldFont;
+
+        TaskCellRenderer() {
+            putClientProperty("html.disable", Boolean.TRUE); // A task named "<html>..." is shown as typed
+            setOpaque(true); // Background visible
+        }
+
         @Override
         public Component getListCellRendererComponent(JList<?> list, Object value, int index,
                                                       boolean isSelected, boolean cellHasFocus) {
-            JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-            label.setOpaque(true); // Background visible
-            label.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10)); // Padding
+            // Everything DefaultListCellRenderer would set, minus its value.toString() call
+            setComponentOrientation(list.getComponentOrientation());
+            setEnabled(list.isEnabled());
+            Font font = list.getFont();
+            if (font != plainFont) {
+                plainFont = font;
+                struckFont = font.deriveFont(STRIKETHROUGH);
+                boldFont = font.deriveFont(Font.BOLD);
+            }
+            ListModel<?> model = list.getModel();
+            String header = value == null && model instanceof TaskListModel
+                    ? ((TaskListModel) model).getGroupHeader(index) : null;
 
             if (value instanceof Task) {
                 Task task = (Task) value;
+                setText(model instanceof TaskListModel ? ((TaskListModel) model).getDisplayText(task) : task.toString());
                 // If task is marked complete → strikethrough text and change colors
                 if (task.isCompleted()) {
-                    label.setText("<html><s>" + task.toString() + "</s></html>");
-                    label.setForeground(new Color(120, 120, 140));
-                    label.setBackground(COMPLETED_COLOR);
+                    setFont(struckFont);
+                    setForeground(COMPLETED_TEXT_COLOR);
+                    setBackground(COMPLETED_COLOR);
                 } else {
-                    label.setText(task.toString());
-                    label.setForeground(new Color(60, 70, 100));
-                    label.setBackground(LIST_BG);
+                    setFont(plainFont);
+                    setForeground(TEXT_COLOR);
+                    setBackground(LIST_BG);
                 }
+            } else if (header != null) { // Group header of the grouped view, e.g. "Overdue (3)"
+                setText(header);
+                setFont(boldFont);
+                setForeground(TITLE_COLOR);
+                setBackground(HEADER_COLOR);
+            } else {
+                setText(value == null ? "" : value.toString());
+                setFont(plainFont);
+                setForeground(TEXT_COLOR);
+                setBackground(LIST_BG);
             }
 
             // Highlight selected task
             if (isSelected) {
-                label.setBackground(SELECTION_COLOR);
-                label.setBorder(BorderFactory.createCompoundBorder(
-                        BorderFactory.createLineBorder(new Color(100, 140, 220), 1),
-                        BorderFactory.createEmptyBorder(4, 9, 4, 9)
-                ));
+                setBackground(SELECTION_COLOR);
+                setBorder(SELECTED_BORDER);
+            } else {
+                setBorder(PADDING);
             }
-            return label;
+            return this;
         }
     }
 }
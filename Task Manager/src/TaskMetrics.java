@@ -0,0 +1,127 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Where the time goes: one latency histogram per instrumented operation plus a few counters, split by layer
+// so a slow app can be pinned on the store, the reminder scheduler or the UI:
+//   store      the TaskFunctions writes, and how long they waited for the write lock (and the shared store's file lock)
+//   scheduler  each reminder check, and reminder lag (shown this long after its notify time)
+//   UI         refreshTaskList (the list model applying a change on the EDT), and how long the EDT took to get to a posted event (stalls are counted)
+// Everything is static so the hot paths record straight into a field; recording never locks or allocates.
+// Read it through JMX (JConsole/VisualVM, domain "taskmanager") or the text dump (-Dtaskmanager.metrics.dump).
+public final class TaskMetrics {
+    // Store
+    public static final LatencyHistogram WRITE_LOCK_WAIT = new LatencyHistogram("writeLockWait");
+    public static final LatencyHistogram ADD_TASK = new LatencyHistogram("addTask");
+    public static final LatencyHistogram ADD_TASKS = new LatencyHistogram("addTasks");
+    public static final LatencyHistogram DELETE_TASKS = new LatencyHistogram("deleteTasks");
+    public static final LatencyHistogram TOGGLE_COMPLETE = new LatencyHistogram("toggleComplete");
+    public static final LatencyHistogram UNDO = new LatencyHistogram("undo");
+    public static final LatencyHistogram REDO = new LatencyHistogram("redo");
+    public static final LatencyHistogram SHARED_LOCK_WAIT = new LatencyHistogram("sharedLockWait"); // Shared-store mode
+    // Scheduler
+    public static final LatencyHistogram REMINDER_CHECK = new LatencyHistogram("reminderCheck");
+    public static final LatencyHistogram REMINDER_LAG = new LatencyHistogram("reminderLag");
+    // UI
+    public static final LatencyHistogram REFRESH_TASK_LIST = new LatencyHistogram("refreshTaskList");
+    public static final LatencyHistogram EDT_LATENCY = new LatencyHistogram("edtLatency");
+
+    private static final LatencyHistogram[] ALL = {
+            WRITE_LOCK_WAIT, ADD_TASK, ADD_TASKS, DELETE_TASKS, TOGGLE_COMPLETE, UNDO, REDO, SHARED_LOCK_WAIT,
+            REMINDER_CHECK, REMINDER_LAG, REFRESH_TASK_LIST, EDT_LATENCY
+    };
+
+    private static final AtomicLong remindersFired = new AtomicLong();
+    private static final AtomicLong remindersMissed = new AtomicLong(); // Came up after the deadline had passed
+    private static final AtomicLong remindersDropped = new AtomicLong(); // Shed by a full delivery queue
+    private static final AtomicLong edtStalls = new AtomicLong();
+
+    private TaskMetrics() {
+    }
+
+    public static void reminderFired() {
+        remindersFired.incrementAndGet();
+    }
+
+    public static void reminderMissed() {
+        remindersMissed.incrementAndGet();
+    }
+
+    public static void reminderDropped() {
+        remindersDropped.incrementAndGet();
+    }
+
+    public static void edtStalled() {
+        edtStalls.incrementAndGet();
+    }
+
+    // Every histogram and counter as text, one line each.
+    public static String report() {
+        StringBuilder text = new StringBuilder();
+        text.append("Task Manager metrics at ").append(LocalDateTime.now().format(Task.formatter)).append('\n');
+        for (LatencyHistogram histogram : ALL) {
+            text.append("  ").append(histogram.summary()).append('\n');
+        }
+        text.append("  remindersFired=").append(remindersFired.get())
+                .append(" remindersMissed=").append(remindersMissed.get())
+                .append(" remindersDropped=").append(remindersDropped.get())
+                .append(" edtStalls=").append(edtStalls.get()).append('\n');
+        return text.toString();
+    }
+
+    // Registers the MBeans with the platform MBean server. Failing to do so only costs the JMX view.
+    public static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (LatencyHistogram histogram : ALL) {
+                server.registerMBean(histogram, new ObjectName("taskmanager:type=Latency,name=" + histogram.getName()));
+            }
+            server.registerMBean(new Counters(), new ObjectName("taskmanager:type=Metrics"));
+        } catch (JMException ex) {
+            System.err.println("Could not register metrics MBeans: " + ex.getMessage());
+        }
+    }
+
+    // Prints the report to standard output every `seconds` seconds on a daemon thread.
+    public static void startDump(long seconds) {
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "task-metrics-dump");
+            thread.setDaemon(true); // Never keeps the application alive
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> System.out.print(report()), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    private static class Counters implements TaskMetricsMXBean {
+        @Override
+        public long getRemindersFired() {
+            return remindersFired.get();
+        }
+
+        @Override
+        public long getRemindersMissed() {
+            return remindersMissed.get();
+        }
+
+        @Override
+        public long getRemindersDropped() {
+            return remindersDropped.get();
+        }
+
+        @Override
+        public long getEdtStalls() {
+            return edtStalls.get();
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+    }
+}
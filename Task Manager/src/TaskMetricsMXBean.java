@@ -0,0 +1,13 @@
+// JMX view of the counters in TaskMetrics (registered as taskmanager:type=Metrics).
+public interface TaskMetricsMXBean {
+    long getRemindersFired();
+
+    long getRemindersMissed();
+
+    long getRemindersDropped();
+
+    long getEdtStalls();
+
+    // The same text as the periodic dump.
+    String getReport();
+}
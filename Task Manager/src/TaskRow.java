@@ -0,0 +1,51 @@
+// One task of a bulk add (TaskFunctions.addTasks), as read from an import file: the due date is still text,
+// and `row` says where it came from so a rejected row can be reported back to the user.
+public class TaskRow {
+    private final long row;
+    private final String name;
+    private final String dueDate; // yyyy-MM-dd HH:mm, parsed by addTasks
+    private final boolean completed;
+    private final int reminderMinutes; // Checked by addTasks
+    private final String recurrence; // Repeat rule in Recurrence's text form, parsed by addTasks; null for none
+
+    public TaskRow(long row, String name, String dueDate, boolean completed) {
+        this(row, name, dueDate, completed, Task.DEFAULT_REMINDER_MINUTES);
+    }
+
+    public TaskRow(long row, String name, String dueDate, boolean completed, int reminderMinutes) {
+        this(row, name, dueDate, completed, reminderMinutes, null);
+    }
+
+    public TaskRow(long row, String name, String dueDate, boolean completed, int reminderMinutes, String recurrence) {
+        this.row = row;
+        this.name = name;
+        this.dueDate = dueDate;
+        this.completed = completed;
+        this.reminderMinutes = reminderMinutes;
+        this.recurrence = recurrence;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDueDate() {
+        return dueDate;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int getReminderMinutes() {
+        return reminderMinutes;
+    }
+
+    public String getRecurrence() {
+        return recurrence;
+    }
+}
@@ -0,0 +1,285 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+// Full-text index over task names, behind the filter box in the GUI. Matching is case-insensitive "contains".
+// DS: inverted trigram index. Every 3-character window of a (lower-cased) name maps to the sorted ids of the
+// tasks whose name contains it. A query is cut into trigrams the same way; only tasks found in all of those
+// lists can contain the query, so a search walks the shortest list instead of every task name.
+//
+// Kept current through TaskListener (add, delete, undo). Listener calls arrive under the store's write lock, so
+// they are kept cheap: deletes are only recorded as dead ids. Once those pile up they are dropped from the lists
+// on the purge executor (the GUI's search thread), a batch of lists at a time, so a writer waiting for the index
+// lock never waits for more than one batch.
+// Searching can take a while at a million tasks, so callers run it off the EDT.
+public class TaskSearchIndex implements TaskListener {
+    private static final int GRAM = 3;
+    private static final int PURGE_BATCH = 1 << 16; // Postings entries checked per hold of the index lock
+
+    private final TaskFunctions taskFunctionsRef;
+    // DS: trigram (3 chars packed into a long) -> ids of the tasks containing it
+    private final Map<Long, Postings> postings;
+    // Deleted ids that are still in the postings lists (filtered out by searches until the next purge)
+    private Set<Long> removed;
+    // The dead ids the running purge is dropping (null when none runs); a task restored meanwhile leaves this set
+    private Set<Long> purging;
+    private final Executor purger;
+    private int liveCount;
+    // Changes that came in while the index was being built, applied once it is done
+    private final List<Runnable> backlog;
+    private boolean ready;
+
+    // Builds the index from the current tasks. Writers are not held up meanwhile: their changes are queued
+    // and applied at the end. At a million tasks this takes a moment, so build it off the EDT.
+    // Purges of deleted ids run on `purger`.
+    public TaskSearchIndex(TaskFunctions taskFunctions, Executor purger) {
+        this.taskFunctionsRef = taskFunctions;
+        this.purger = purger;
+        this.postings = new HashMap<>();
+        this.removed = new HashSet<>();
+        this.backlog = new ArrayList<>();
+        TaskStore.Frozen current = taskFunctions.subscribe(this);
+        for (int i = 0; i < current.size(); i++) {
+            index(current.id(i), current.name(i)); // Listener calls go to the backlog until `ready`
+        }
+        synchronized (this) {
+            ready = true; // First, or each queued change would only queue itself again
+            for (Runnable change : backlog) {
+                change.run();
+            }
+            backlog.clear();
+        }
+    }
+
+    // Lower-cased query, or null if there is nothing to search for.
+    public static String normalize(String query) {
+        return query == null || query.trim().isEmpty() ? null : query.toLowerCase(Locale.ROOT);
+    }
+
+    // Whether the task's name contains the normalized query.
+    public static boolean matches(Task task, String normalizedQuery) {
+        return task.getName().toLowerCase(Locale.ROOT).contains(normalizedQuery);
+    }
+
+    // Ids of the tasks whose name contains the query, in id order (the order of the task list).
+    public long[] search(String query) {
+        String q = normalize(query);
+        if (q == null) {
+            return new long[0];
+        }
+        if (q.length() < GRAM) {
+            return scan(q); // One or two letters match most of the list anyway, so just check every name.
+        }
+
+        long[] candidates = candidates(q);
+        if (q.length() == GRAM) {
+            return candidates; // The trigram itself is the query: every candidate matches.
+        }
+        // Containing all of the query's trigrams does not guarantee containing the query ("abcxbcd" for "abcd"),
+        // so check the candidates' names. Done outside the index lock; a task deleted meanwhile is simply dropped.
+        int count = 0;
+        for (long id : candidates) {
+            Task task = taskFunctionsRef.findTask(id);
+            if (task != null && matches(task, q)) {
+                candidates[count++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    @Override
+    public synchronized void taskAdded(Task task, int index) {
+        if (!ready) {
+            backlog.add(() -> taskAdded(task, index));
+            return;
+        }
+        if (removed.remove(task.getId())) {
+            liveCount++; // Restored before the purge: its ids are still in the lists
+        } else {
+            if (purging != null) {
+                purging.remove(task.getId()); // Restored during a purge: put back where it was already dropped
+            }
+            index(task.getId(), task.getName());
+        }
+    }
+
+    @Override
+    public synchronized void taskRemoved(Task task, int index) {
+        if (!ready) {
+            backlog.add(() -> taskRemoved(task, index));
+            return;
+        }
+        removed.add(task.getId());
+        liveCount--;
+        // Purge once deleted ids make up a good part of the index; amortized O(1) per delete.
+        if (purging == null && removed.size() > 1024 && removed.size() > liveCount / 4) {
+            purging = removed;
+            removed = new HashSet<>();
+            purger.execute(this::purge);
+        }
+    }
+
+    // Purge executor: drops the ids in `purging` from every list, taking the index lock for one batch of lists at a
+    // time. Lists made meanwhile hold no dead ids; a task restored meanwhile is indexed again by taskAdded.
+    private void purge() {
+        List<Postings> lists;
+        synchronized (this) {
+            lists = new ArrayList<>(postings.values());
+        }
+        int next = 0;
+        while (next < lists.size()) {
+            synchronized (this) {
+                for (int checked = 0; next < lists.size() && checked < PURGE_BATCH; next++) {
+                    checked += lists.get(next).size;
+                    lists.get(next).removeAll(purging);
+                }
+            }
+        }
+        synchronized (this) {
+            postings.values().removeIf(list -> list.size == 0);
+            purging = null;
+        }
+    }
+
+    @Override
+    public void taskUpdated(Task task, int index) {
+        // Completing a task does not change its name.
+    }
+
+    // Adds the task's id to the list of every distinct trigram in its name.
+    private void index(long id, String name) {
+        for (long gram : trigrams(name.toLowerCase(Locale.ROOT))) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                list = new Postings();
+                postings.put(gram, list);
+            }
+            list.add(id);
+        }
+        liveCount++;
+    }
+
+    // Live ids found in the lists of all the query's trigrams.
+    private synchronized long[] candidates(String q) {
+        long[] grams = trigrams(q);
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return new long[0]; // No task has this trigram
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size)); // Walk the shortest, probe the others
+
+        Postings shortest = lists[0];
+        long[] result = new long[shortest.size];
+        int[] cursors = new int[lists.length]; // Ids only increase, so each list is walked forward once
+        int count = 0;
+        next:
+        for (int i = 0; i < shortest.size; i++) {
+            long id = shortest.ids[i];
+            for (int j = 1; j < lists.length; j++) {
+                cursors[j] = lists[j].seek(id, cursors[j]);
+                if (cursors[j] == lists[j].size) {
+                    break next; // One list is used up: nothing further can be in all of them
+                }
+                if (lists[j].ids[cursors[j]] != id) {
+                    continue next;
+                }
+            }
+            if (!removed.contains(id) && (purging == null || !purging.contains(id))) {
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Checks every current name; used for queries too short to have a trigram.
+    private long[] scan(String q) {
+        List<Task> tasks = taskFunctionsRef.getTasks(); // Shared immutable snapshot, no lock held while scanning
+        long[] result = new long[tasks.size()];
+        int count = 0;
+        for (Task task : tasks) {
+            if (matches(task, q)) {
+                result[count++] = task.getId();
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result); // Already in order unless restored tasks are mixed in
+        return result;
+    }
+
+    // Distinct trigrams of a lower-cased string, each packed as three 16-bit chars.
+    private static long[] trigrams(String s) {
+        int n = s.length() - GRAM + 1;
+        if (n <= 0) {
+            return new long[0];
+        }
+        long[] grams = new long[n];
+        for (int i = 0; i < n; i++) {
+            grams[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 1;
+        for (int i = 1; i < n; i++) {
+            if (grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    // Sorted, growable array of task ids. New tasks get the highest id so far, so adding is nearly always an append.
+    private static class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            int at = size;
+            if (size > 0 && ids[size - 1] >= id) {
+                at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) {
+                    return;
+                }
+                at = -at - 1; // A restored task with an old id goes back in its place
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        // First position at or after `from` holding an id >= the given one. Gallops ahead, then binary searches,
+        // so intersecting two lists costs about the shorter one's length however long the other is.
+        int seek(long id, int from) {
+            int step = 1;
+            int high = from;
+            while (high < size && ids[high] < id) {
+                from = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(ids, from, Math.min(high + 1, size), id);
+            return at >= 0 ? at : -at - 1;
+        }
+
+        void removeAll(Set<Long> removed) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.contains(ids[i])) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Local HTTP/JSON API over TaskFunctions, for headless mode (-Dtaskmanager.server=<port>) and scripts.
+// Listens on the loopback address only. Tasks are written as {"id", "name", "due", "completed", "remind"}, plus
+// "repeat" for a recurring task.
+//   GET    /tasks[?offset=N&limit=N]       {"total": N, "tasks": [...]} in display order
+//   GET    /tasks/due?from=..&to=..        tasks due in [from, to) in due date order (yyyy-MM-dd HH:mm);
+//                                          a recurring task once per occurrence in the range
+//   POST   /tasks                          body: one {"name", "due", "completed", "remind", "repeat"} object or an
+//                                          array, as in the JSON import; answers {"added": N, "errors": [...]}
+//   DELETE /tasks/{id}
+//   POST   /tasks/{id}/toggle              (a recurring task moves on to its next occurrence)
+//   POST   /undo, POST /redo
+//   GET    /reminders                      Server-Sent Events, one per reminder (see ReminderFeed)
+// Each request runs on its own virtual thread when the JVM has them (Java 21+), so thousands of clients, many
+// of them parked on the reminder feed, cost next to nothing. Older JVMs fall back to a cached thread pool.
+public class TaskServer {
+    private final TaskFunctions taskFunctionsRef;
+    private final ReminderFeed reminderFeed;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public TaskServer(TaskFunctions taskFunctions, ReminderFeed reminderFeed, int port) throws IOException {
+        this.taskFunctionsRef = taskFunctions;
+        this.reminderFeed = reminderFeed;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/tasks", this::handleTasks);
+        server.createContext("/undo", exchange -> handleHistory(exchange, true));
+        server.createContext("/redo", exchange -> handleHistory(exchange, false));
+        server.createContext("/reminders", this::handleReminders);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting requests, gives running ones a second to finish, and interrupts the rest (feed clients).
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() if this JVM has it. Looked up by reflection because the
+    // app is compiled for Java 8.
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "task-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // ------------ Handlers ------------
+
+    private void handleTasks(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/"); // "", "tasks", ...
+            String method = exchange.getRequestMethod();
+            if (path.length == 2) {
+                if ("GET".equals(method)) {
+                    listTasks(exchange);
+                } else if ("POST".equals(method)) {
+                    addTasks(exchange);
+                } else {
+                    sendError(exchange, 405, "Use GET or POST on /tasks");
+                }
+            } else if (path.length == 3 && "due".equals(path[2])) {
+                if ("GET".equals(method)) {
+                    listDue(exchange);
+                } else {
+                    sendError(exchange, 405, "Use GET on /tasks/due");
+                }
+            } else if (path.length == 3 && "DELETE".equals(method)) {
+                Task task = findTask(path[2]);
+                if (task == null) {
+                    sendError(exchange, 404, "No task with id " + path[2]);
+                } else {
+                    taskFunctionsRef.deleteTask(task);
+                    sendJson(exchange, 200, "{\"deleted\": " + task.getId() + "}");
+                }
+            } else if (path.length == 4 && "toggle".equals(path[3]) && "POST".equals(method)) {
+                Task task = findTask(path[2]);
+                if (task == null) {
+                    sendError(exchange, 404, "No task with id " + path[2]);
+                } else {
+                    taskFunctionsRef.toggleComplete(task);
+                    Task toggled = taskFunctionsRef.findTask(task.getId());
+                    if (toggled == null) { // Deleted by someone else right after the toggle
+                        sendError(exchange, 404, "No task with id " + path[2]);
+                    } else {
+                        sendTask(exchange, toggled);
+                    }
+                }
+            } else {
+                sendError(exchange, 404, "Unknown path " + exchange.getRequestURI().getPath());
+            }
+        } catch (RuntimeException ex) {
+            if (exchange.getResponseCode() == -1) { // Nothing sent yet, so the status can still be an error
+                sendError(exchange, 500, String.valueOf(ex.getMessage()));
+            } else { // Headers are out and the status cannot change any more
+                System.err.println("API request " + exchange.getRequestURI() + " failed mid-response: " + ex);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void listTasks(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        List<Task> tasks = taskFunctionsRef.getTasks(); // Shared immutable snapshot; streamed, not copied
+        int offset;
+        int limit;
+        try {
+            offset = Math.max(0, Integer.parseInt(query.getOrDefault("offset", "0")));
+            limit = Math.max(0, Integer.parseInt(query.getOrDefault("limit", String.valueOf(Integer.MAX_VALUE))));
+        } catch (NumberFormatException ex) {
+            sendError(exchange, 400, "offset and limit must be numbers");
+            return;
+        }
+        int from = Math.min(offset, tasks.size());
+        int to = (int) Math.min((long) from + limit, tasks.size());
+        try (Writer out = openJson(exchange, 200)) {
+            out.write("{\"total\": " + tasks.size() + ", \"tasks\": ");
+            writeTasks(out, tasks.subList(from, to));
+            out.write("}\n");
+        }
+    }
+
+    private void listDue(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            from = LocalDateTime.parse(query.getOrDefault("from", ""), Task.formatter);
+            to = LocalDateTime.parse(query.getOrDefault("to", ""), Task.formatter);
+        } catch (DateTimeParseException ex) {
+            sendError(exchange, 400, "from and to must be given as yyyy-MM-dd HH:mm");
+            return;
+        }
+        List<Task> tasks = taskFunctionsRef.getTasksDueBetween(from, to);
+        try (Writer out = openJson(exchange, 200)) {
+            out.write("{\"total\": " + tasks.size() + ", \"tasks\": ");
+            writeTasks(out, tasks);
+            out.write("}\n");
+        }
+    }
+
+    // Parsed and validated exactly like a JSON import (a single object is treated as a one-element array).
+    private void addTasks(HttpExchange exchange) throws IOException {
+        Reader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        int first = body.read();
+        while (first != -1 && Character.isWhitespace(first)) {
+            first = body.read();
+        }
+        Reader json = first == '{'
+                ? new SequenceReader("[{", body, "]")
+                : new SequenceReader(first == -1 ? "" : String.valueOf((char) first), body, "");
+        BatchResult result = new TaskImporter(taskFunctionsRef).importJson(json);
+        try (Writer out = openJson(exchange, result.getAddedCount() > 0 || result.getErrorCount() == 0 ? 201 : 400)) {
+            out.write("{\"added\": " + result.getAddedCount() + ", \"errors\": [");
+            boolean firstError = true;
+            for (BatchResult.RowError error : result.getErrors()) {
+                out.write(firstError ? "" : ", ");
+                firstError = false;
+                TaskExporter.writeJsonString(out, error.toString());
+            }
+            out.write("]}\n");
+        }
+    }
+
+    private void handleHistory(HttpExchange exchange, boolean undo) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use POST");
+                return;
+            }
+            boolean done = undo ? taskFunctionsRef.undo() : taskFunctionsRef.redo(); // Checked under the write lock
+            sendJson(exchange, 200, "{\"" + (undo ? "undone" : "redone") + "\": " + done + "}");
+        } catch (RuntimeException ex) { // e.g. the shared task log is unavailable
+            sendError(exchange, 500, String.valueOf(ex.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Holds the request open and streams reminders until the client goes away.
+    private void handleReminders(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use GET");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0); // Chunked: no length, open until either side closes
+            Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            reminderFeed.stream(out);
+        } catch (IOException ex) {
+            // The client disconnected
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // ------------ JSON ------------
+
+    static void writeTask(Writer out, Task task) throws IOException {
+        out.write("{\"id\": " + task.getId() + ", \"name\": ");
+        TaskExporter.writeJsonString(out, task.getName());
+        out.write(", \"due\": \"");
+        out.write(task.getDueDate().format(Task.formatter));
+        out.write(task.isCompleted() ? "\", \"completed\": true" : "\", \"completed\": false");
+        out.write(", \"remind\": " + task.getReminderMinutes());
+        if (task.isRecurring()) {
+            out.write(", \"repeat\": \"" + task.getRecurrence() + "\"");
+        }
+        out.write('}');
+    }
+
+    private static void writeTasks(Writer out, List<Task> tasks) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (Task task : tasks) {
+            out.write(first ? "\n  " : ",\n  ");
+            first = false;
+            writeTask(out, task);
+        }
+        out.write(first ? "]" : "\n]");
+    }
+
+    private void sendTask(HttpExchange exchange, Task task) throws IOException {
+        try (Writer out = openJson(exchange, 200)) {
+            writeTask(out, task);
+            out.write('\n');
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (Writer out = openJson(exchange, status)) {
+            out.write("{\"error\": ");
+            TaskExporter.writeJsonString(out, message);
+            out.write("}\n");
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        try (Writer out = openJson(exchange, status)) {
+            out.write(json);
+            out.write('\n');
+        }
+    }
+
+    // Starts a chunked JSON response, so large lists are streamed without building the body in memory.
+    private static Writer openJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+    }
+
+    // ------------ Requests ------------
+
+    private Task findTask(String id) {
+        try {
+            return taskFunctionsRef.findTask(Long.parseLong(id));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    // A prefix, then a reader, then a suffix, read as one stream (lets a single JSON object pass as an array).
+    private static class SequenceReader extends Reader {
+        private final String prefix;
+        private final Reader body;
+        private final String suffix;
+        private int prefixRead;
+        private int suffixRead;
+        private boolean bodyDone;
+
+        SequenceReader(String prefix, Reader body, String suffix) {
+            this.prefix = prefix;
+            this.body = body;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (prefixRead < prefix.length()) {
+                int count = Math.min(length, prefix.length() - prefixRead);
+                prefix.getChars(prefixRead, prefixRead + count, buffer, offset);
+                prefixRead += count;
+                return count;
+            }
+            if (!bodyDone) {
+                int count = body.read(buffer, offset, length);
+                if (count != -1) {
+                    return count;
+                }
+                bodyDone = true;
+            }
+            if (suffixRead == suffix.length()) {
+                return -1;
+            }
+            int count = Math.min(length, suffix.length() - suffixRead);
+            suffix.getChars(suffixRead, suffixRead + count, buffer, offset);
+            suffixRead += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
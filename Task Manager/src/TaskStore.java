@@ -0,0 +1,1019 @@
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeSet;
+
+// In-memory task store with a stable id per task and two indexes over the same tasks.
+// TaskFunctions builds the add/delete/toggle/undo operations on top of it.
+//
+// The saved tasks the app starts with come in as snapshot columns (see attach()): the memory-mapped file itself, or
+// a copy of it in compact heap arrays. Their rows stay in those columns: the store only keeps a live bit and a
+// completed bit per row, and creates a small Task view for a row when something asks for it. Tasks added
+// afterwards are kept as Task objects and come after the snapshot rows in display order.
+//
+// Recurring tasks move their due date whenever an occurrence is completed, so they are kept out of the due
+// date index and in a map of their own. There are few of them (one stands for any number of occurrences),
+// so the range queries look at each of them and work out its occurrences in the range on the spot.
+public class TaskStore {
+    // Orders tasks by due date; the id breaks ties so tasks due at the same minute are all kept.
+    private static final Comparator<Task> DUE_ORDER =
+            Comparator.comparingLong(Task::getDueMinute).thenComparingLong(Task::getId);
+    private static final int VIEW_CACHE_SIZE = 4096; // Snapshot rows kept as Task objects at most (power of 2)
+
+    // DS #1: hash index id -> task for O(1) lookup and delete (open addressing on primitive ids, see IdMap).
+    private final IdMap byId;
+    // DS #1b: TreeSet ordered by due date for O(log n) range queries ("due in the next hour", "overdue").
+    private final TreeSet<Task> byDue;
+    // DS #1c: the in-memory tasks in id order (= creation order) for the list display (see OrderedTasks).
+    // A delete leaves a gap that live counts skip, so it is O(log n) instead of shifting every later task,
+    // and a restored task goes back into its own gap.
+    private final OrderedTasks ordered;
+    // DS #1e: HashMap id -> recurring task (in memory or a snapshot row), instead of byDue / the dueOrder column.
+    private final Map<Long, Task> recurring;
+    private long nextId;
+
+    // ------------ Snapshot rows (unused unless attach() was called) ------------
+    private TaskColumns base;
+    private long[] baseLive; // Bitset: row not deleted
+    private long[] baseCompleted; // Bitset: current completed flag (starts as a copy of the file's column)
+    // DS #1d: Fenwick tree counting live rows per 64-row word, for position <-> row in O(log n).
+    private int[] liveCounts;
+    private int baseLiveCount;
+    // Recently used row views, so repeated paints of the same rows reuse their Task objects.
+    // Direct-mapped (slot = row mod size) rather than LRU, so lookups never modify shared state
+    // and concurrent readers can use it without a lock (a lost slot write just means a new view later).
+    private RowTask[] views;
+    // Recurring snapshot rows are decoded into ordinary Tasks on attach (their due date has to be able to move)
+    // and handed out instead of views. Bitset of those rows, then row -> task.
+    private long[] baseRecurringRows;
+    private Map<Integer, Task> baseRecurring;
+
+    public TaskStore() {
+        this.byId = new IdMap();
+        this.byDue = new TreeSet<>(DUE_ORDER);
+        this.ordered = new OrderedTasks();
+        this.recurring = new HashMap<>();
+        this.nextId = 1;
+    }
+
+    // Hands out the next stable id; ids are never reused.
+    public long newId() {
+        return nextId++;
+    }
+
+    public long getNextId() {
+        return nextId;
+    }
+
+    // Makes sure ids below the given value are never handed out again (used when loading from disk).
+    public void ensureNextId(long id) {
+        nextId = Math.max(nextId, id);
+    }
+
+    // Uses the rows of a snapshot as the start of an empty store, without making Tasks of them.
+    // Heap use for them beyond the columns is two bits per row plus the views currently in use.
+    public void attach(TaskColumns snapshot) {
+        if (size() > 0) {
+            throw new IllegalStateException("attach() requires an empty store");
+        }
+        int rows = snapshot.size();
+        int words = (rows + 63) >>> 6;
+        base = snapshot;
+        baseLive = new long[words];
+        baseCompleted = new long[words];
+        baseRecurringRows = new long[words];
+        baseRecurring = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            baseLive[row >>> 6] |= 1L << row;
+            if (snapshot.completed(row)) {
+                baseCompleted[row >>> 6] |= 1L << row;
+            }
+            if (snapshot.recurrence(row) != 0) {
+                Task task = new Task(snapshot.id(row), snapshot.name(row), snapshot.dueMinute(row));
+                task.setCompleted(snapshot.completed(row));
+                task.setReminderMinutes(snapshot.reminderMinutes(row));
+                task.setRecurrence(Recurrence.fromBits(snapshot.recurrence(row)));
+                baseRecurringRows[row >>> 6] |= 1L << row;
+                baseRecurring.put(row, task);
+                recurring.put(task.getId(), task);
+            }
+        }
+        liveCounts = countLive(baseLive);
+        baseLiveCount = rows;
+        views = new RowTask[VIEW_CACHE_SIZE];
+        ensureNextId(snapshot.getNextId());
+        if (rows > 0) {
+            ensureNextId(snapshot.id(rows - 1) + 1);
+        }
+    }
+
+    public int size() {
+        return baseLiveCount + ordered.size();
+    }
+
+    public Task get(int index) {
+        if (index < baseLiveCount) {
+            return view(selectRow(index));
+        }
+        return ordered.get(index - baseLiveCount);
+    }
+
+    public Task find(long id) {
+        Task task = byId.get(id);
+        if (task == null && base != null) {
+            int row = base.rowOf(id);
+            if (row >= 0 && isLive(row)) {
+                task = view(row);
+            }
+        }
+        return task;
+    }
+
+    // Read-only view of all tasks in display order.
+    public List<Task> asList() {
+        return new AbstractList<Task>() {
+            @Override
+            public Task get(int index) {
+                return TaskStore.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return TaskStore.this.size();
+            }
+        };
+    }
+
+    // Every task in display order as of now, for a reader that walks them after the lock is released (see Frozen).
+    public Frozen frozen() {
+        return new Frozen(this);
+    }
+
+    // Position of the task in display order, or -1 if it is not in the store.
+    public int indexOf(Task task) {
+        int row = baseRow(task.getId());
+        if (row >= 0) {
+            return isLive(row) ? rank(row) : -1;
+        }
+        int index = ordered.indexOf(task.getId());
+        return index >= 0 ? baseLiveCount + index : -1;
+    }
+
+    // Adds a new task or re-inserts a deleted one at its original position. Returns its index.
+    public int add(Task task) {
+        int row = baseRow(task.getId());
+        if (row >= 0) {
+            if (isLive(row)) {
+                return -1; // Already stored
+            }
+            setLive(row, true); // A restored snapshot row is still in the file, it just becomes visible again
+            setBaseCompleted(row, task.isCompleted());
+            if (isBaseRecurring(row)) {
+                baseRecurring.put(row, task);
+                recurring.put(task.getId(), task);
+            }
+            return rank(row);
+        }
+
+        if (byId.putIfAbsent(task.getId(), task) != null) {
+            return -1; // Already stored
+        }
+        index(task);
+        nextId = Math.max(nextId, task.getId() + 1);
+        return baseLiveCount + ordered.add(task);
+    }
+
+    // Removes the task. Returns the index it had, or -1 if it was not stored.
+    public int remove(Task task) {
+        int row = baseRow(task.getId());
+        if (row >= 0) {
+            if (!isLive(row)) {
+                return -1;
+            }
+            int index = rank(row);
+            setLive(row, false);
+            recurring.remove(task.getId());
+            return index;
+        }
+
+        Task stored = byId.remove(task.getId());
+        if (stored == null) {
+            return -1;
+        }
+        unindex(stored);
+        return baseLiveCount + ordered.remove(stored.getId());
+    }
+
+    // Adds several tasks in one pass: new ones, or deleted ones going back to their original position.
+    // Rearranges `tasks` into display order (dropping any already stored) and returns the index each ends up at.
+    public int[] addAll(List<Task> tasks) {
+        List<Task> added = new ArrayList<>(tasks.size());
+        List<Task> inMemory = new ArrayList<>();
+        for (Task task : tasks) {
+            int row = baseRow(task.getId());
+            if (row >= 0) {
+                if (!isLive(row)) {
+                    setLive(row, true);
+                    setBaseCompleted(row, task.isCompleted());
+                    if (isBaseRecurring(row)) {
+                        baseRecurring.put(row, task);
+                        recurring.put(task.getId(), task);
+                    }
+                    added.add(task);
+                }
+            } else if (byId.putIfAbsent(task.getId(), task) == null) {
+                index(task);
+                nextId = Math.max(nextId, task.getId() + 1);
+                inMemory.add(task);
+                added.add(task);
+            }
+        }
+        inMemory.sort(Comparator.comparingLong(Task::getId));
+        ordered.addAll(inMemory);
+        return sortByIndex(tasks, added);
+    }
+
+    // Removes several tasks in one pass. Rearranges `tasks` into display order (dropping any not stored)
+    // and returns the index each had before the removal.
+    public int[] removeAll(List<Task> tasks) {
+        List<Task> stored = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (indexOf(task) >= 0) {
+                stored.add(task);
+            }
+        }
+        int[] indexes = sortByIndex(tasks, stored); // Taken before anything is removed
+        for (Task task : tasks) {
+            int row = baseRow(task.getId());
+            if (row >= 0) {
+                setLive(row, false);
+                recurring.remove(task.getId());
+            } else {
+                unindex(byId.remove(task.getId()));
+                ordered.remove(task.getId()); // O(log n) each, nothing shifts
+            }
+        }
+        return indexes;
+    }
+
+    // Tasks with from <= dueDate < to, in due date order. A recurring task is listed once for each of its open
+    // occurrences in the range (Task.occurrence views, made here and not kept).
+    public List<Task> dueBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        long start = ceilMinute(from);
+        long end = ceilMinute(to);
+        List<Task> inMemory = new ArrayList<>(byDue.subSet(probe(start), probe(end)));
+        List<Task> occurrences = new ArrayList<>();
+        for (Task task : recurring.values()) {
+            if (task.isCompleted()) { // The series is over; its last occurrence is kept as a completed task
+                if (!task.getDueDate().isBefore(from) && task.getDueDate().isBefore(to)) {
+                    occurrences.add(task);
+                }
+                continue;
+            }
+            Recurrence rule = task.getRecurrence();
+            for (LocalDateTime due = rule.atOrAfter(task.getDueDate(), from); due != null && due.isBefore(to);
+                 due = rule.next(due)) {
+                occurrences.add(task.occurrence(due));
+            }
+        }
+        occurrences.sort(DUE_ORDER);
+        inMemory = merge(inMemory, occurrences);
+        if (base == null) {
+            return inMemory;
+        }
+        List<Task> fromSnapshot = new ArrayList<>();
+        for (int pos = base.firstDueAtOrAfter(start); pos < base.size(); pos++) {
+            int row = base.dueOrder(pos);
+            if (base.dueMinute(row) >= end) {
+                break;
+            }
+            if (isLive(row) && !isBaseRecurring(row)) {
+                fromSnapshot.add(view(row));
+            }
+        }
+        return merge(fromSnapshot, inMemory);
+    }
+
+    // Incomplete tasks with an occurrence in from <= dueDate < to, for the reminder engine: the one-off tasks in due
+    // date order, then each recurring task once, as itself (the caller works out which occurrences it needs).
+    public List<Task> openDueBetween(LocalDateTime from, LocalDateTime to) {
+        List<Task> open = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return open;
+        }
+        long start = ceilMinute(from);
+        long end = ceilMinute(to);
+        for (Task task : byDue.subSet(probe(start), probe(end))) {
+            if (!task.isCompleted()) {
+                open.add(task);
+            }
+        }
+        if (base != null) {
+            List<Task> fromSnapshot = new ArrayList<>();
+            for (int pos = base.firstDueAtOrAfter(start); pos < base.size(); pos++) {
+                int row = base.dueOrder(pos);
+                if (base.dueMinute(row) >= end) {
+                    break;
+                }
+                if (isLive(row) && !isBaseCompleted(row) && !isBaseRecurring(row)) {
+                    fromSnapshot.add(view(row));
+                }
+            }
+            open = merge(fromSnapshot, open);
+        }
+        for (Task task : recurring.values()) {
+            if (!task.isCompleted()) {
+                LocalDateTime due = task.getRecurrence().atOrAfter(task.getDueDate(), from);
+                if (due != null && due.isBefore(to)) {
+                    open.add(task);
+                }
+            }
+        }
+        return open;
+    }
+
+    // Incomplete tasks whose due date is before the given time, in due date order.
+    public List<Task> overdue(LocalDateTime now) {
+        long end = ceilMinute(now);
+        List<Task> inMemory = new ArrayList<>();
+        for (Task task : byDue.headSet(probe(end))) {
+            if (!task.isCompleted()) {
+                inMemory.add(task);
+            }
+        }
+        List<Task> late = new ArrayList<>(); // Recurring tasks whose next open occurrence has passed
+        for (Task task : recurring.values()) {
+            if (!task.isCompleted() && task.getDueDate().isBefore(now)) {
+                late.add(task);
+            }
+        }
+        late.sort(DUE_ORDER);
+        inMemory = merge(inMemory, late);
+        if (base == null) {
+            return inMemory;
+        }
+        List<Task> fromSnapshot = new ArrayList<>();
+        for (int pos = 0; pos < base.size(); pos++) {
+            int row = base.dueOrder(pos);
+            if (base.dueMinute(row) >= end) {
+                break;
+            }
+            if (isLive(row) && !isBaseCompleted(row) && !isBaseRecurring(row)) {
+                fromSnapshot.add(view(row));
+            }
+        }
+        return merge(fromSnapshot, inMemory);
+    }
+
+    // Replaces `out` with `tasks` sorted by their current index (each task once) and returns those indexes.
+    private int[] sortByIndex(List<Task> out, List<Task> tasks) {
+        long[] keyed = new long[tasks.size()]; // index in the high half, position in `tasks` in the low half
+        for (int i = 0; i < keyed.length; i++) {
+            keyed[i] = ((long) indexOf(tasks.get(i)) << 32) | i;
+        }
+        Arrays.sort(keyed);
+        out.clear();
+        int[] indexes = new int[keyed.length];
+        int count = 0;
+        for (long key : keyed) {
+            int index = (int) (key >>> 32);
+            if (count == 0 || indexes[count - 1] != index) { // The same task passed twice
+                indexes[count++] = index;
+                out.add(tasks.get((int) key));
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    // Puts an in-memory task into the due date index, or with the recurring tasks.
+    private void index(Task task) {
+        if (task.isRecurring()) {
+            recurring.put(task.getId(), task);
+        } else {
+            byDue.add(task);
+        }
+    }
+
+    private void unindex(Task task) {
+        if (task.isRecurring()) {
+            recurring.remove(task.getId());
+        } else {
+            byDue.remove(task);
+        }
+    }
+
+    // ------------ Snapshot row helpers ------------
+
+    // Row of the id in the mapped snapshot, or -1 (also when there is no snapshot).
+    private int baseRow(long id) {
+        return base == null ? -1 : base.rowOf(id);
+    }
+
+    private Task view(int row) {
+        return isBaseRecurring(row) ? baseRecurring.get(row) : rowView(row);
+    }
+
+    // View of a row that does not repeat, from the cache when it is there.
+    private Task rowView(int row) {
+        int slot = row & (VIEW_CACHE_SIZE - 1);
+        RowTask task = views[slot];
+        if (task == null || task.row != row) {
+            task = new RowTask(this, row); // Final fields, so safe to publish through the racy slot
+            views[slot] = task;
+        }
+        return task;
+    }
+
+    private boolean isLive(int row) {
+        return (baseLive[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private void setLive(int row, boolean live) {
+        if (isLive(row) == live) {
+            return;
+        }
+        baseLive[row >>> 6] ^= 1L << row;
+        int delta = live ? 1 : -1;
+        baseLiveCount += delta;
+        addLive(liveCounts, row, delta);
+    }
+
+    private boolean isBaseRecurring(int row) {
+        return (baseRecurringRows[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private boolean isBaseCompleted(int row) {
+        return (baseCompleted[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private void setBaseCompleted(int row, boolean completed) {
+        if (completed) {
+            baseCompleted[row >>> 6] |= 1L << row;
+        } else {
+            baseCompleted[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    // Number of live rows before the given row.
+    private int rank(int row) {
+        return rank(baseLive, liveCounts, row);
+    }
+
+    // The row of the index-th live row.
+    private int selectRow(int index) {
+        return select(baseLive, liveCounts, index);
+    }
+
+    // ------------ Position counting over a bitset (snapshot rows and OrderedTasks slots) ------------
+
+    // Fenwick tree over the number of set bits in each 64-bit word (index 1 = word 0), built in linear time.
+    private static int[] countLive(long[] bits) {
+        int[] counts = new int[bits.length + 1];
+        for (int word = 1; word <= bits.length; word++) {
+            counts[word] += Long.bitCount(bits[word - 1]);
+            int parent = word + (word & -word);
+            if (parent <= bits.length) {
+                counts[parent] += counts[word];
+            }
+        }
+        return counts;
+    }
+
+    // Records that the given bit was set (delta 1) or cleared (-1).
+    private static void addLive(int[] counts, int bit, int delta) {
+        for (int word = (bit >>> 6) + 1; word < counts.length; word += word & -word) {
+            counts[word] += delta;
+        }
+    }
+
+    // Number of set bits before the given bit.
+    private static int rank(long[] bits, int[] counts, int bit) {
+        int count = 0;
+        for (int word = bit >>> 6; word > 0; word -= word & -word) {
+            count += counts[word];
+        }
+        return count + Long.bitCount(bits[bit >>> 6] & ((1L << bit) - 1));
+    }
+
+    // The index-th set bit (Fenwick descent to the word, then a scan inside it).
+    private static int select(long[] bits, int[] counts, int index) {
+        int word = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(counts.length - 1); step > 0; step >>= 1) {
+            int next = word + step;
+            if (next < counts.length && counts[next] <= remaining) {
+                word = next;
+                remaining -= counts[next];
+            }
+        }
+        long wordBits = bits[word];
+        for (int i = 0; i < remaining; i++) {
+            wordBits &= wordBits - 1; // Drop the lowest set bit
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(wordBits);
+    }
+
+    // Merges two lists that are each in due date order.
+    private static List<Task> merge(List<Task> a, List<Task> b) {
+        if (a.isEmpty()) {
+            return b;
+        }
+        if (b.isEmpty()) {
+            return a;
+        }
+        List<Task> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            merged.add(DUE_ORDER.compare(a.get(i), b.get(j)) <= 0 ? a.get(i++) : b.get(j++));
+        }
+        merged.addAll(a.subList(i, a.size()));
+        merged.addAll(b.subList(j, b.size()));
+        return merged;
+    }
+
+    // Smallest epoch minute that is not before the given time.
+    private static long ceilMinute(LocalDateTime time) {
+        long minute = Task.toEpochMinute(time);
+        return time.getSecond() == 0 && time.getNano() == 0 ? minute : minute + 1;
+    }
+
+    // Task view of one snapshot row. Name and due date are read from the columns on each call;
+    // the completed flag lives in the store's bitset so toggles are seen by every view of the row.
+    // Never recurring: those rows are decoded into ordinary Tasks (see attach()).
+    private static class RowTask extends Task {
+        private final TaskStore store;
+        private final int row;
+
+        RowTask(TaskStore store, int row) {
+            super(store.base.id(row));
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override
+        public String getName() {
+            return store.base.name(row);
+        }
+
+        @Override
+        public long getDueMinute() {
+            return store.base.dueMinute(row);
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return store.isBaseCompleted(row);
+        }
+
+        @Override
+        public void setCompleted(boolean completed) {
+            store.setBaseCompleted(row, completed);
+        }
+
+        @Override
+        public int getReminderMinutes() {
+            return store.base.reminderMinutes(row);
+        }
+    }
+
+    // Copy of the display order taken under the lock, for readers that go through the tasks after the lock is
+    // released: getTasks, subscribers starting up, snapshots being written. It does not copy the snapshot rows,
+    // only their live and completed bits plus a count per 64-row word (about 1/5 of a byte per row), so the i-th
+    // row is a binary search on the counts and a scan inside one word. A Task view is made only for a row that
+    // get() is asked for; id(), name() and copyColumns() read the columns themselves and make no Task at all.
+    // Tasks added after the snapshot are kept as they are (one reference each), so their completed flag and due
+    // date read whatever they are by then, unless pin() has copied them.
+    public static final class Frozen extends AbstractList<Task> implements RandomAccess {
+        private final TaskStore store;
+        private final TaskColumns columns; // null without a snapshot
+        private final long[] live;
+        private final long[] completed;
+        private final int[] liveBefore; // Live rows in the words before each word
+        private final int baseCount;
+        private Map<Integer, Task> recurringRows; // Row -> task as of now (the store's map keeps changing)
+        private final Task[] added;
+        private long[] addedDues; // The added tasks' due dates and completed flags as of pin(), else null
+        private boolean[] addedCompleted;
+
+        private Frozen(TaskStore store) {
+            this.store = store;
+            this.columns = store.base;
+            this.baseCount = store.baseLiveCount;
+            this.added = store.ordered.toArray();
+            if (columns == null) {
+                live = null;
+                completed = null;
+                liveBefore = null;
+                recurringRows = null;
+                return;
+            }
+            live = store.baseLive.clone();
+            completed = store.baseCompleted.clone();
+            liveBefore = new int[live.length];
+            for (int word = 1; word < live.length; word++) {
+                liveBefore[word] = liveBefore[word - 1] + Long.bitCount(live[word - 1]);
+            }
+            recurringRows = new HashMap<>(store.baseRecurring);
+        }
+
+        // Copies what can still change about the tasks behind the rows (due date and completed flag of the added
+        // tasks and of the recurring snapshot rows), so copyColumns() later reports them as of now. For a copy that
+        // must show one moment but is read after the lock is released (TaskJournal snapshots): O(added tasks),
+        // the snapshot rows' own columns are left where they are.
+        public Frozen pin() {
+            addedDues = new long[added.length];
+            addedCompleted = new boolean[added.length];
+            for (int i = 0; i < added.length; i++) {
+                addedDues[i] = added[i].getDueMinute();
+                addedCompleted[i] = added[i].isCompleted();
+            }
+            if (recurringRows != null) {
+                Map<Integer, Task> copies = new HashMap<>();
+                for (Map.Entry<Integer, Task> entry : recurringRows.entrySet()) {
+                    Task task = entry.getValue();
+                    Task copy = new Task(task.getId(), task.getName(), task.getDueMinute());
+                    copy.setCompleted(task.isCompleted());
+                    copy.setReminderMinutes(task.getReminderMinutes());
+                    copy.setRecurrence(task.getRecurrence());
+                    copies.put(entry.getKey(), copy);
+                }
+                recurringRows = copies;
+            }
+            return this;
+        }
+
+        @Override
+        public int size() {
+            return baseCount + added.length;
+        }
+
+        @Override
+        public Task get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+            }
+            if (index >= baseCount) {
+                return added[index - baseCount];
+            }
+            int row = row(index);
+            return store.isBaseRecurring(row) ? recurringRows.get(row) : store.rowView(row);
+        }
+
+        public long id(int index) {
+            return index < baseCount ? columns.id(row(index)) : added[index - baseCount].getId();
+        }
+
+        public String name(int index) {
+            if (index >= baseCount) {
+                return added[index - baseCount].getName();
+            }
+            int row = row(index);
+            return store.isBaseRecurring(row) ? recurringRows.get(row).getName() : columns.name(row);
+        }
+
+        // Fills the arrays (any of them may be null) with each task's id, due minute and completed flag, in
+        // display order. One pass over the live bits.
+        public void copyColumns(long[] ids, long[] dueMinutes, boolean[] completedFlags) {
+            int index = 0;
+            for (int word = 0; columns != null && word < live.length; word++) {
+                long bits = live[word];
+                while (bits != 0) {
+                    int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    Task task = store.isBaseRecurring(row) ? recurringRows.get(row) : null; // Due date moves
+                    if (ids != null) {
+                        ids[index] = columns.id(row);
+                    }
+                    if (dueMinutes != null) {
+                        dueMinutes[index] = task != null ? task.getDueMinute() : columns.dueMinute(row);
+                    }
+                    if (completedFlags != null) {
+                        completedFlags[index] = task != null
+                                ? task.isCompleted() : (completed[word] & (1L << row)) != 0;
+                    }
+                    index++;
+                    bits &= bits - 1;
+                }
+            }
+            for (int i = 0; i < added.length; i++) {
+                Task task = added[i];
+                if (ids != null) {
+                    ids[index] = task.getId();
+                }
+                if (dueMinutes != null) {
+                    dueMinutes[index] = addedDues != null ? addedDues[i] : task.getDueMinute();
+                }
+                if (completedFlags != null) {
+                    completedFlags[index] = addedCompleted != null ? addedCompleted[i] : task.isCompleted();
+                }
+                index++;
+            }
+        }
+
+        // Row of the index-th live snapshot row: the last word with fewer live rows before it, then a scan.
+        private int row(int index) {
+            int low = 0;
+            int high = liveBefore.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (liveBefore[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            long bits = live[low];
+            for (int i = liveBefore[low]; i < index; i++) {
+                bits &= bits - 1; // Drop the lowest set bit
+            }
+            return (low << 6) + Long.numberOfTrailingZeros(bits);
+        }
+    }
+
+    // Search key that sorts before every real task due at the same minute (real ids start at 1).
+    private static Task probe(long dueMinute) {
+        return new Task(Long.MIN_VALUE, "", dueMinute);
+    }
+
+    // The in-memory tasks in id order. Slots hold the tasks sorted by id; deleting a task only empties its slot and
+    // clears its bit, and a Fenwick tree of set bits per 64-slot word (as for the snapshot rows) turns a position
+    // into a slot and back in O(log n). So a delete costs O(log n) instead of shifting every later task, and a
+    // restored task (same id) drops back into its empty slot. New ids are appended. Only an old id that never had
+    // a slot here (journal replay of an undo) needs the slots rebuilt, O(n). Empty slots are squeezed out once
+    // they outnumber the tasks, which keeps them under half of the array and costs O(1) per delete amortized.
+    private static class OrderedTasks {
+        private long[] ids = new long[64]; // Id of every slot in use, also of an emptied one, so they stay sorted
+        private Task[] tasks = new Task[64]; // null = deleted
+        private long[] live = new long[1]; // Bit per slot: holds a task
+        private int[] counts = countLive(live);
+        private int used; // Slots in use, emptied ones included
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        Task get(int index) {
+            return tasks[select(live, counts, index)];
+        }
+
+        // Position of the task with the id, or -1.
+        int indexOf(long id) {
+            int slot = slotOf(id);
+            return slot >= 0 && tasks[slot] != null ? rank(live, counts, slot) : -1;
+        }
+
+        // Adds the task (not already stored) at its place in id order and returns its position.
+        int add(Task task) {
+            long id = task.getId();
+            int slot = used > 0 && ids[used - 1] >= id ? slotOf(id) : -(used + 1);
+            if (slot < 0) {
+                slot = -slot - 1;
+                if (slot < used) { // Older than a task here and never had a slot: make room
+                    insertAll(Collections.singletonList(task));
+                    return indexOf(id);
+                }
+                if (used == ids.length) {
+                    resize(ids.length * 2);
+                }
+                ids[used++] = id;
+            }
+            fill(slot, task);
+            return rank(live, counts, slot);
+        }
+
+        // Adds tasks in id order, none already stored: each into its slot or at the end, and the ones that need
+        // room in between with one rebuild.
+        void addAll(List<Task> sorted) {
+            List<Task> between = new ArrayList<>();
+            for (Task task : sorted) {
+                int slot = used > 0 && ids[used - 1] >= task.getId() ? slotOf(task.getId()) : -(used + 1);
+                if (slot >= 0 || -slot - 1 == used) {
+                    add(task);
+                } else {
+                    between.add(task);
+                }
+            }
+            if (!between.isEmpty()) {
+                insertAll(between);
+            }
+        }
+
+        // Removes the task with the id and returns the position it had, or -1.
+        int remove(long id) {
+            int slot = slotOf(id);
+            if (slot < 0 || tasks[slot] == null) {
+                return -1;
+            }
+            int index = rank(live, counts, slot);
+            tasks[slot] = null;
+            live[slot >>> 6] &= ~(1L << slot);
+            addLive(counts, slot, -1);
+            size--;
+            if (used - size > Math.max(64, size)) {
+                insertAll(Collections.<Task>emptyList()); // Squeeze out the empty slots
+            }
+            return index;
+        }
+
+        // The tasks in order.
+        Task[] toArray() {
+            Task[] all = new Task[size];
+            int index = 0;
+            for (int slot = 0; slot < used; slot++) {
+                if (tasks[slot] != null) {
+                    all[index++] = tasks[slot];
+                }
+            }
+            return all;
+        }
+
+        private void fill(int slot, Task task) {
+            tasks[slot] = task;
+            live[slot >>> 6] |= 1L << slot;
+            addLive(counts, slot, 1);
+            size++;
+        }
+
+        // Slot holding the id (binary search), or -(insertion point + 1).
+        private int slotOf(long id) {
+            int low = 0;
+            int high = used - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (ids[mid] < id) {
+                    low = mid + 1;
+                } else if (ids[mid] > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        // Rebuilds the slots from the stored tasks merged with the given ones (in id order), dropping empty slots.
+        private void insertAll(List<Task> sorted) {
+            Task[] current = toArray();
+            int total = current.length + sorted.size();
+            long[] newIds = new long[Math.max(64, Integer.highestOneBit(Math.max(1, total)) * 2)];
+            Task[] newTasks = new Task[newIds.length];
+            int i = 0;
+            int j = 0;
+            for (int slot = 0; slot < total; slot++) {
+                Task next = j == sorted.size() || (i < current.length && current[i].getId() < sorted.get(j).getId())
+                        ? current[i++] : sorted.get(j++);
+                newIds[slot] = next.getId();
+                newTasks[slot] = next;
+            }
+            ids = newIds;
+            tasks = newTasks;
+            used = total;
+            size = total;
+            live = new long[newIds.length >>> 6];
+            for (int slot = 0; slot < total; slot++) {
+                live[slot >>> 6] |= 1L << slot;
+            }
+            counts = countLive(live);
+        }
+
+        private void resize(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            tasks = Arrays.copyOf(tasks, capacity);
+            live = Arrays.copyOf(live, capacity >>> 6);
+            counts = countLive(live);
+        }
+    }
+
+    // Hash map from id to task on primitive keys: a lookup boxes nothing and an entry is a long and a reference
+    // in two arrays, not a node object plus a Long. Open addressing with linear probing; removal shifts the
+    // entries after the gap back (no tombstones), so lookups stay short however many tasks come and go.
+    // Writers hold the store's write lock, but TaskFunctions.findTask reads without a lock and validates afterwards.
+    // So get() reads the table once (keys and values always come as a pair, the new arrays already filled), and
+    // gives up after one lap of the table: a read racing a write may be wrong, but it always returns.
+    private static class IdMap {
+        private static final long EMPTY = Long.MIN_VALUE; // Not a real id (real ids start at 1)
+
+        private Table table;
+        private int size;
+
+        IdMap() {
+            table = Table.empty(16);
+        }
+
+        Task get(long id) {
+            Table current = table;
+            long[] keys = current.keys;
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            for (int probes = 0; probes < keys.length; probes++, slot = (slot + 1) & mask) {
+                if (keys[slot] == id) {
+                    return current.values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        // Stores the task unless its id is already there. Returns the task already stored, or null.
+        Task putIfAbsent(long id, Task task) {
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == id) {
+                    return table.values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            table.values[slot] = task;
+            keys[slot] = id;
+            if (++size > keys.length / 2) { // At most half full
+                grow();
+            }
+            return null;
+        }
+
+        Task remove(long id) {
+            long[] keys = table.keys;
+            Task[] values = table.values;
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            while (keys[slot] != id) {
+                if (keys[slot] == EMPTY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            Task removed = values[slot];
+            size--;
+            // Move later entries of the probe run back into the gap if their home slot allows it
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                int home = slot(keys[next], mask);
+                if (((next - home) & mask) >= ((next - gap) & mask)) { // Home is at or before the gap
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = EMPTY;
+            values[gap] = null;
+            return removed;
+        }
+
+        private static int slot(long id, int mask) {
+            long hash = id * 0x9E3779B97F4A7C15L; // Ids are consecutive: spread them over the table
+            return (int) (hash >>> 32) & mask;
+        }
+
+        // Rehashes into arrays twice the size, filled completely before they replace the old table.
+        private void grow() {
+            Table old = table;
+            long[] keys = new long[old.keys.length * 2];
+            Task[] values = new Task[keys.length];
+            Arrays.fill(keys, EMPTY);
+            int mask = keys.length - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] != EMPTY) {
+                    int slot = slot(old.keys[i], mask);
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = old.keys[i];
+                    values[slot] = old.values[i];
+                }
+            }
+            table = new Table(keys, values);
+        }
+
+        // The two arrays of one table size. Final fields, so a reader that sees the Table sees them filled.
+        private static final class Table {
+            final long[] keys;
+            final Task[] values;
+
+            Table(long[] keys, Task[] values) {
+                this.keys = keys;
+                this.values = values;
+            }
+
+            static Table empty(int capacity) {
+                long[] keys = new long[capacity];
+                Arrays.fill(keys, EMPTY);
+                return new Table(keys, new Task[capacity]);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Undo/redo history for TaskFunctions: the last CAPACITY commands, in a fixed-size ring buffer.
+// An entry is only the kind of command and the ids it touched; a whole bulk delete of 10,000 tasks is one
+// entry, and undoing or redoing it is one operation. So is an import, however many batches it came in (extend).
+//
+// Task objects are only needed to bring a task back (undoing a delete, redoing an add), so just those are
+// kept, in the graveyard, and only while an entry that can restore them is still in the ring.
+// A restored task keeps its id, and the store keeps tasks in id order, so it returns to its original position.
+//
+// Toggling a recurring task moves it to its next occurrence rather than flipping a flag, so a TOGGLE entry that
+// touched one also keeps, per task, the state on the other side of the command (TaskFunctions packs due date
+// and completed flag into a long). Undo and redo swap that with the task's current state.
+//
+// Not thread-safe: TaskFunctions only uses it under its write lock.
+public class UndoLog {
+    public static final byte ADD = 1;
+    public static final byte DELETE = 2;
+    public static final byte TOGGLE = 3; // Its own inverse: undo and redo both flip (or swap) the tasks again
+    private static final int CAPACITY = 100;
+
+    // DS: ring buffer. Entries run from `oldest` for `size` slots; the first `undoable` of them can be undone,
+    // the rest have been undone and can be redone.
+    private final Entry[] ring;
+    private int oldest;
+    private int size;
+    private int undoable;
+    // DS: HashMap id -> deleted task that some entry can still restore
+    private final Map<Long, Task> graveyard;
+
+    public UndoLog() {
+        this.ring = new Entry[CAPACITY];
+        this.graveyard = new HashMap<>();
+    }
+
+    // Records a command that was just carried out. Anything that could be redone is forgotten, and when the
+    // ring is full the oldest entry makes room.
+    public Entry record(byte kind, long[] ids) {
+        return record(kind, ids, null);
+    }
+
+    // As above, with the state of each task to swap back in on undo (null if flipping again is enough).
+    // Returns the new entry.
+    public Entry record(byte kind, long[] ids, long[] states) {
+        while (size > undoable) {
+            Entry dropped = take(size - 1);
+            if (dropped.kind == ADD) {
+                release(dropped); // Undone adds: those tasks can never come back now
+            }
+        }
+        if (size == CAPACITY) {
+            Entry dropped = take(0);
+            oldest = (oldest + 1) % CAPACITY;
+            undoable--;
+            if (dropped.kind == DELETE) {
+                release(dropped); // Deleted tasks nobody can undelete any more
+            }
+        }
+        Entry entry = new Entry(kind, ids, states);
+        ring[(oldest + size) % CAPACITY] = entry;
+        size++;
+        undoable++;
+        return entry;
+    }
+
+    // Adds more ids to a command recorded in steps (an import, batch by batch), as long as it is still the newest
+    // entry and has not been undone. Returns false if anything came in between; the caller then records anew.
+    public boolean extend(Entry entry, long[] ids) {
+        if (undoable == 0 || undoable != size || ring[(oldest + size - 1) % CAPACITY] != entry) {
+            return false;
+        }
+        entry.append(ids);
+        return true;
+    }
+
+    public boolean canUndo() {
+        return undoable > 0;
+    }
+
+    public boolean canRedo() {
+        return undoable < size;
+    }
+
+    // The entry to undo next, now counted as redoable. Null if there is nothing to undo.
+    public Entry undo() {
+        if (undoable == 0) {
+            return null;
+        }
+        undoable--;
+        return ring[(oldest + undoable) % CAPACITY];
+    }
+
+    // The entry to redo next, now counted as undoable again. Null if there is nothing to redo.
+    public Entry redo() {
+        if (undoable == size) {
+            return null;
+        }
+        undoable++;
+        return ring[(oldest + undoable - 1) % CAPACITY];
+    }
+
+    // Keeps a task that was just removed from the store, so an entry can restore it later.
+    public void bury(Task task) {
+        graveyard.put(task.getId(), task);
+    }
+
+    // Takes a buried task back out (null if it was released).
+    public Task exhume(long id) {
+        return graveyard.remove(id);
+    }
+
+    private Entry take(int position) {
+        int slot = (oldest + position) % CAPACITY;
+        Entry entry = ring[slot];
+        ring[slot] = null;
+        size--;
+        return entry;
+    }
+
+    private void release(Entry entry) {
+        for (long id : entry.getIds()) {
+            graveyard.remove(id);
+        }
+    }
+
+    // One command: what it did and to which tasks.
+    public static class Entry {
+        private final byte kind;
+        private long[] ids; // The first `count` are used (room to grow when the command is extended)
+        private int count;
+        private final long[] states; // Parallel to ids, updated in place by each swap; usually null
+
+        Entry(byte kind, long[] ids, long[] states) {
+            this.kind = kind;
+            this.ids = ids;
+            this.count = ids.length;
+            this.states = states;
+        }
+
+        public byte getKind() {
+            return kind;
+        }
+
+        public long[] getIds() {
+            if (count != ids.length) {
+                ids = Arrays.copyOf(ids, count);
+            }
+            return ids;
+        }
+
+        // Doubling, so building up an entry of n ids over many steps copies O(n) ids in all
+        private void append(long[] more) {
+            if (count + more.length > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + more.length));
+            }
+            System.arraycopy(more, 0, ids, count, more.length);
+            count += more.length;
+        }
+
+        public long[] getStates() {
+            return states;
+        }
+    }
+}
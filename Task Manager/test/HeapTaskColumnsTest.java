@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Heap mode's copy of the snapshot columns, and a store over it (or over the mapped file) taking the same changes
+// as one holding Task objects.
+class HeapTaskColumnsTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2031, 1, 31, 9, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void copyKeepsEveryColumnAndSharesRepeatedNames() throws IOException {
+        MappedTaskSnapshot source = MappedTaskSnapshot.open(write(savedTasks()));
+        HeapTaskColumns copy = HeapTaskColumns.copyOf(source);
+
+        assertEquals(source.size(), copy.size());
+        assertEquals(source.getNextId(), copy.getNextId());
+        for (int row = 0; row < source.size(); row++) {
+            assertEquals(source.id(row), copy.id(row));
+            assertEquals(source.dueMinute(row), copy.dueMinute(row));
+            assertEquals(source.completed(row), copy.completed(row));
+            assertEquals(source.name(row), copy.name(row));
+            assertEquals(source.recurrence(row), copy.recurrence(row), "row " + row);
+            assertEquals(source.reminderMinutes(row), copy.reminderMinutes(row));
+            assertEquals(source.dueOrder(row), copy.dueOrder(row));
+        }
+        assertSame(copy.name(0), copy.name(10)); // "task 0" twice: one String
+    }
+
+    @Test
+    void storesOverTheColumnsTakeChangesLikeAPlainStore() throws IOException {
+        List<Task> saved = savedTasks();
+        Path file = write(saved);
+        TaskStore plainStore = new TaskStore();
+        for (Task task : saved) {
+            plainStore.add(copy(task));
+        }
+        plainStore.ensureNextId(saved.size() + 1);
+        TaskStore heapStore = new TaskStore();
+        heapStore.attach(HeapTaskColumns.copyOf(MappedTaskSnapshot.open(file)));
+        TaskStore mappedStore = new TaskStore();
+        mappedStore.attach(MappedTaskSnapshot.open(file));
+
+        List<String> expected = null;
+        for (TaskStore store : Arrays.asList(plainStore, heapStore, mappedStore)) {
+            TaskFunctions tasks = new TaskFunctions(store);
+            tasks.deleteTask(tasks.getTaskAt(3));
+            tasks.toggleComplete(tasks.getTaskAt(4)); // A one-off row
+            tasks.toggleComplete(tasks.getTaskAt(9)); // A recurring row: moves on to its next occurrence
+            assertEquals(DUE.plusHours(70).plusDays(1), tasks.findTask(11).getDueDate());
+            tasks.deleteTasks(Arrays.asList(tasks.getTaskAt(10), tasks.getTaskAt(20), tasks.getTaskAt(30)));
+            tasks.undo(); // The three rows come back to their places
+            assertTrue(tasks.addTask("added later", "2031-02-10 08:00"));
+            tasks.toggleComplete(tasks.getTaskAt(0));
+
+            List<String> rows = describe(tasks.getTasks());
+            rows.add("due in the first week: " + describe(tasks.getTasksDueBetween(DUE, DUE.plusDays(7))));
+            if (expected == null) {
+                expected = rows;
+            } else {
+                assertEquals(expected, rows);
+            }
+        }
+    }
+
+    // 60 rows in id order: names repeating every 10 rows, every third one completed, every fourth one recurring
+    private static List<Task> savedTasks() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Task task = new Task(i + 1, "task " + (i % 10), DUE.plusHours(7 * i));
+            task.setCompleted(i % 3 == 0);
+            task.setReminderMinutes(i);
+            if (i % 4 == 2) {
+                task.setRecurrence(Recurrence.parse("every " + (1 + i % 5) + " days"));
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private Path write(List<Task> tasks) throws IOException {
+        int count = tasks.size();
+        long[] ids = new long[count];
+        long[] dues = new long[count];
+        boolean[] completed = new boolean[count];
+        Integer[] byDue = new Integer[count];
+        for (int row = 0; row < count; row++) {
+            ids[row] = tasks.get(row).getId();
+            dues[row] = tasks.get(row).getDueMinute();
+            completed[row] = tasks.get(row).isCompleted();
+            byDue[row] = row;
+        }
+        Arrays.sort(byDue, (a, b) -> Long.compare(dues[a], dues[b]));
+        int[] dueOrder = new int[count];
+        for (int i = 0; i < count; i++) {
+            dueOrder[i] = byDue[i];
+        }
+        Path file = dir.resolve("tasks.snapshot");
+        MappedTaskSnapshot.write(file, 1, count + 1, ids, dues, completed, tasks, dueOrder);
+        return file;
+    }
+
+    private static Task copy(Task task) {
+        Task copy = new Task(task.getId(), task.getName(), task.getDueMinute());
+        copy.setCompleted(task.isCompleted());
+        copy.setReminderMinutes(task.getReminderMinutes());
+        copy.setRecurrence(task.getRecurrence());
+        return copy;
+    }
+
+    private static List<String> describe(List<Task> tasks) {
+        List<String> all = new ArrayList<>();
+        for (Task task : tasks) {
+            all.add(task.getId() + "|" + task.getName() + "|" + task.getDueDate() + "|" + task.isCompleted() + "|"
+                    + task.getReminderMinutes() + "|" + task.getRecurrence());
+        }
+        return all;
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The mapped snapshot format: what is written reads back (mapped and copied onto the heap), damaged files are refused.
+class MappedTaskSnapshotTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2031, 1, 31, 9, 0);
+    // Where the columns of the three-row snapshot below start (see the layout in MappedTaskSnapshot)
+    private static final int NAME_OFFSETS_AT = 32 + 8 * 3 + 8 * 3 + 8 + 8 * 3;
+    private static final int DUE_ORDER_AT = NAME_OFFSETS_AT + 4 * 4;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writtenRowsReadBack() throws IOException {
+        Path file = write();
+        MappedTaskSnapshot mapped = MappedTaskSnapshot.open(file);
+        assertEquals(5, mapped.getGeneration());
+        assertRows(mapped);
+        assertRows(HeapTaskColumns.copyOf(mapped));
+    }
+
+    @Test
+    void manyRowsSpanSeveralCompletedWords() throws IOException {
+        int count = 1000;
+        long[] ids = new long[count];
+        long[] dues = new long[count];
+        boolean[] completed = new boolean[count];
+        int[] dueOrder = new int[count];
+        List<Task> tasks = new ArrayList<>();
+        for (int row = 0; row < count; row++) {
+            ids[row] = row * 2 + 1;
+            dues[row] = Task.toEpochMinute(DUE) - row;
+            completed[row] = row % 3 == 0;
+            dueOrder[row] = count - 1 - row;
+            tasks.add(new Task(ids[row], "task " + row, dues[row]));
+        }
+        Path file = dir.resolve("many.snapshot");
+        MappedTaskSnapshot.write(file, 1, 2 * count + 1, ids, dues, completed, tasks, dueOrder);
+
+        MappedTaskSnapshot mapped = MappedTaskSnapshot.open(file);
+        assertEquals(count, mapped.size());
+        for (int row = 0; row < count; row++) {
+            assertEquals(ids[row], mapped.id(row));
+            assertEquals(dues[row], mapped.dueMinute(row));
+            assertEquals(completed[row], mapped.completed(row), "row " + row);
+            assertEquals("task " + row, mapped.name(row));
+            assertEquals(dueOrder[row], mapped.dueOrder(row));
+        }
+    }
+
+    @Test
+    void truncatedFileIsRefused() throws IOException {
+        Path file = write();
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length : new int[]{bytes.length - 1, DUE_ORDER_AT, NAME_OFFSETS_AT + 4, 40, 10}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> MappedTaskSnapshot.open(file), "cut at " + length);
+        }
+    }
+
+    @Test
+    void damagedColumnsAreRefused() throws IOException {
+        assertRefused(0, 0x12345678); // Magic
+        assertRefused(4, 2); // Version
+        assertRefused(24, Integer.MAX_VALUE); // Row count
+        assertRefused(24, -1);
+        assertRefused(NAME_OFFSETS_AT, 1); // Names must start at 0
+        assertRefused(NAME_OFFSETS_AT + 4, 1 << 30); // Runs past the end
+        assertRefused(NAME_OFFSETS_AT + 8, 0); // Goes backwards
+        assertRefused(DUE_ORDER_AT, 3); // No such row
+        assertRefused(DUE_ORDER_AT + 4, -1);
+    }
+
+    // Three rows, one of them completed and one recurring, with a name that is not ASCII
+    private Path write() throws IOException {
+        Task rent = new Task(2, "Pay rent", DUE);
+        rent.setReminderMinutes(30);
+        rent.setRecurrence(Recurrence.parse("every 4 weeks"));
+        Task cafe = new Task(5, "Café", DUE.minusDays(1));
+        Task done = new Task(9, "done", DUE.plusDays(1));
+        List<Task> tasks = Arrays.asList(rent, cafe, done);
+        Path file = dir.resolve("tasks.snapshot");
+        MappedTaskSnapshot.write(file, 5, 10, new long[]{2, 5, 9},
+                new long[]{rent.getDueMinute(), cafe.getDueMinute(), done.getDueMinute()},
+                new boolean[]{false, false, true}, tasks, new int[]{1, 0, 2});
+        return file;
+    }
+
+    private static void assertRows(TaskColumns columns) {
+        assertEquals(3, columns.size());
+        assertEquals(10, columns.getNextId());
+        assertEquals(5, columns.id(1));
+        assertEquals("Pay rent", columns.name(0));
+        assertEquals("Café", columns.name(1));
+        assertEquals("done", columns.name(2));
+        assertEquals(Task.toEpochMinute(DUE.minusDays(1)), columns.dueMinute(1));
+        assertFalse(columns.completed(0));
+        assertTrue(columns.completed(2));
+        assertEquals(30, columns.reminderMinutes(0));
+        assertEquals(Recurrence.parse("every 4 weeks").toBits(), columns.recurrence(0));
+        assertEquals(0, columns.recurrence(1));
+        assertEquals(1, columns.dueOrder(0));
+        assertEquals(2, columns.dueOrder(2));
+    }
+
+    // Writes the test snapshot with one int changed and expects opening it to fail
+    private void assertRefused(int at, int value) throws IOException {
+        Path file = write();
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        bytes.putInt(at, value);
+        Files.write(file, bytes.array());
+        assertThrows(IOException.class, () -> MappedTaskSnapshot.open(file), "int at " + at + " = " + value);
+    }
+}
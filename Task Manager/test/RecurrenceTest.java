@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Repeat rules: parsing, the packed form, and stepping through occurrences.
+class RecurrenceTest {
+    // 2026-01-05 is a Monday
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2026, 1, 5, 9, 0);
+
+    @Test
+    void parsesTextFormsAndPrintsThemBack() {
+        assertEquals("every day", Recurrence.parse("daily").toString());
+        assertEquals("every week", Recurrence.parse("Weekly").toString());
+        assertEquals("weekdays", Recurrence.parse("weekdays").toString());
+        assertEquals("every 30 minutes", Recurrence.parse("every  30 minutes").toString());
+        assertEquals("every 2 weeks on mon,thu", Recurrence.parse("every 2 weeks on thu,monday").toString());
+        assertEquals("every day until 2026-02-01 10:00", Recurrence.parse("every day until 2026-02-01 10:00").toString());
+        assertNull(Recurrence.parse(null));
+        assertNull(Recurrence.parse(" none "));
+        assertNull(Recurrence.parse("once"));
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("every fortnight"));
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("every 0 days"));
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("every 10000 days"));
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("every day on mon"));
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("weekdays on mon"));
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("every week on funday"));
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("every day until tomorrow"));
+    }
+
+    @Test
+    void bitsRoundTrip() {
+        String[] rules = {"every minute", "every 9999 minutes", "every 3 days", "weekdays",
+                "every 2 weeks on tue,sat,sun", "every week until 2099-12-31 23:59", "every 5 days until 1970-01-01 00:00"};
+        for (String text : rules) {
+            Recurrence rule = Recurrence.parse(text);
+            long bits = rule.toBits();
+            Recurrence back = Recurrence.fromBits(bits);
+            assertEquals(rule, back, text);
+            assertEquals(text, back.toString());
+            assertEquals(bits, back.toBits(), text);
+        }
+        assertNull(Recurrence.fromBits(0));
+    }
+
+    @Test
+    void nextStepsByTheUnit() {
+        assertEquals(MONDAY.plusMinutes(45), Recurrence.parse("every 45 minutes").next(MONDAY));
+        assertEquals(MONDAY.plusDays(3), Recurrence.parse("every 3 days").next(MONDAY));
+        assertEquals(MONDAY.plusWeeks(2), Recurrence.parse("every 2 weeks").next(MONDAY));
+        assertNull(Recurrence.parse("daily").next(null));
+    }
+
+    @Test
+    void nextSkipsTheWeeksInBetween() {
+        Recurrence rule = Recurrence.parse("every 2 weeks on mon,thu");
+        LocalDateTime thursday = rule.next(MONDAY);
+        assertEquals(MONDAY.plusDays(3), thursday);
+        // After the week's last day the next one is the Monday two weeks on, not the following Monday
+        assertEquals(MONDAY.plusWeeks(2), rule.next(thursday));
+
+        Recurrence weekdays = Recurrence.parse("weekdays");
+        LocalDateTime friday = MONDAY.plusDays(4);
+        assertEquals(MONDAY.plusWeeks(1), weekdays.next(friday));
+    }
+
+    @Test
+    void firstMovesToTheFirstChosenDay() {
+        LocalDateTime saturday = MONDAY.plusDays(5);
+        assertEquals(MONDAY.plusWeeks(1), Recurrence.parse("weekdays").first(saturday));
+        assertEquals(MONDAY, Recurrence.parse("weekdays").first(MONDAY));
+        assertEquals(DayOfWeek.WEDNESDAY, Recurrence.parse("weekly on wed").first(MONDAY).getDayOfWeek());
+        // Without chosen days the series starts where it is asked to
+        assertEquals(saturday, Recurrence.parse("every day").first(saturday));
+        // Starting past the end date gives no occurrence at all
+        assertNull(Recurrence.parse("weekdays until 2026-01-10 12:00").first(saturday));
+    }
+
+    @Test
+    void atOrAfterJumpsWholePeriods() {
+        Recurrence rule = Recurrence.parse("every 3 days");
+        // 1000 days on is not on the 3-day grid: the next occurrence after it
+        LocalDateTime result = rule.atOrAfter(MONDAY, MONDAY.plusDays(1000));
+        assertEquals(MONDAY.plusDays(1002), result);
+        // An occurrence itself is returned as is
+        assertEquals(MONDAY.plusDays(999), rule.atOrAfter(MONDAY, MONDAY.plusDays(999)));
+        assertEquals(MONDAY, rule.atOrAfter(MONDAY, MONDAY.minusDays(1)));
+
+        Recurrence minutes = Recurrence.parse("every 7 minutes");
+        assertEquals(MONDAY.plusMinutes(7L * 1_000_000), minutes.atOrAfter(MONDAY, MONDAY.plusMinutes(7L * 1_000_000 - 3)));
+    }
+
+    @Test
+    void atOrAfterMatchesSteppingOnChosenDays() {
+        Recurrence rule = Recurrence.parse("every 3 weeks on tue,fri,sun");
+        LocalDateTime start = rule.first(MONDAY);
+        for (int offset = 0; offset < 24 * 200; offset += 7) {
+            LocalDateTime time = MONDAY.plusHours(offset);
+            LocalDateTime stepped = start;
+            while (stepped.isBefore(time)) {
+                stepped = rule.next(stepped);
+            }
+            assertEquals(stepped, rule.atOrAfter(start, time), "at " + time);
+        }
+    }
+
+    @Test
+    void endDateStopsTheSeries() {
+        Recurrence rule = Recurrence.parse("every day until 2026-01-07 09:00");
+        assertEquals(MONDAY.plusDays(2), rule.next(MONDAY.plusDays(1))); // The end itself is still an occurrence
+        assertNull(rule.next(MONDAY.plusDays(2)));
+        assertEquals(MONDAY.plusDays(2), rule.atOrAfter(MONDAY, MONDAY.plusDays(1).plusMinutes(1)));
+        assertNull(rule.atOrAfter(MONDAY, MONDAY.plusDays(2).plusMinutes(1)));
+        assertNull(rule.atOrAfter(MONDAY, MONDAY.plusYears(5)));
+    }
+}
@@ -0,0 +1,168 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The reminder queue against a clock the test moves: the loaded window, recurring tasks, cancels, missed deadlines.
+// The timer is never started; checkTaskNotifications() is called directly.
+class ReminderManagerTest {
+    private static final LocalDateTime T0 = LocalDateTime.of(2031, 3, 3, 9, 0); // A Monday
+    // Task.MAX_REMINDER_MINUTES plus a day: how far ahead the manager loads
+    private static final int WINDOW_DAYS = 8;
+
+    private final TestClock clock = new TestClock(T0);
+    private final List<Task> shown = new ArrayList<>();
+    private final TaskFunctions tasks = new TaskFunctions();
+    private ReminderManager manager;
+
+    @AfterEach
+    void stop() {
+        if (manager != null) {
+            manager.stop();
+        }
+    }
+
+    @Test
+    void onlyTheWindowIsLoadedAndItMovesOn() {
+        add("soon", T0.plusHours(1), 10);
+        add("last in window", T0.plusDays(WINDOW_DAYS).minusMinutes(1), 10);
+        add("first after window", T0.plusDays(WINDOW_DAYS), 10);
+        add("next day's load", T0.plusDays(WINDOW_DAYS).plusHours(12), 10);
+        add("no reminder", T0.plusHours(1), 0);
+        start();
+        assertEquals(2, manager.pendingCount());
+
+        check(T0.plusMinutes(49));
+        assertEquals(Arrays.asList(), names(shown));
+        check(T0.plusMinutes(50));
+        assertEquals(Arrays.asList("soon"), names(shown));
+        assertEquals(1, manager.pendingCount());
+
+        check(T0.plusDays(1).minusMinutes(1)); // Still before the next load
+        assertEquals(1, manager.pendingCount());
+        check(T0.plusDays(1)); // A week of lead time before the loaded deadlines run out
+        assertEquals(3, manager.pendingCount());
+
+        // Added while loaded: queued now if inside the window, by a later load otherwise
+        add("added inside", T0.plusDays(3), 10);
+        add("added outside", T0.plusDays(WINDOW_DAYS + 2), 10);
+        assertEquals(4, manager.pendingCount());
+    }
+
+    @Test
+    void recurringTaskIsQueuedAgainForItsNextOccurrence() {
+        add("standup", T0.plusHours(1), 15, "daily");
+        start();
+        assertEquals(1, manager.queuedCount());
+
+        check(T0.plusMinutes(45));
+        assertEquals(1, shown.size());
+        assertEquals(T0.plusHours(1), shown.get(0).getDueDate());
+        assertEquals(1, manager.pendingCount()); // Tomorrow's
+
+        check(T0.plusDays(1).plusMinutes(44));
+        assertEquals(1, shown.size());
+        check(T0.plusDays(1).plusMinutes(45));
+        assertEquals(2, shown.size());
+        assertEquals(T0.plusDays(1).plusHours(1), shown.get(1).getDueDate()); // The occurrence, not the task's date
+        assertEquals(T0.plusHours(1), tasks.getTaskAt(0).getDueDate());
+    }
+
+    @Test
+    void missedOccurrencesAndDeadlinesAreSkipped() {
+        start();
+        // Added exactly at one of its occurrences: that one is too late for a reminder, so the next one counts
+        add("daily", T0.minusDays(2), 10, "daily");
+        add("one-off", T0.plusHours(2), 10);
+        assertEquals(2, manager.pendingCount());
+
+        check(T0.plusHours(3)); // The one-off's reminder comes up only after its deadline: dropped
+        assertEquals(Arrays.asList(), names(shown));
+        check(T0.plusDays(1).minusMinutes(10));
+        assertEquals(Arrays.asList("daily"), names(shown));
+        assertEquals(T0.plusDays(1), shown.get(0).getDueDate());
+    }
+
+    @Test
+    void cancelledRemindersArePurgedOnceTheyAreMostOfTheHeap() {
+        for (int i = 0; i < 200; i++) {
+            add("task " + i, T0.plusDays(1).plusMinutes(i), 600);
+        }
+        start();
+        assertEquals(200, manager.queuedCount());
+
+        tasks.deleteTasks(new ArrayList<>(tasks.getTasks().subList(0, 10)));
+        assertEquals(200, manager.queuedCount()); // Only flagged
+        assertEquals(190, manager.pendingCount());
+
+        // The 101st cancel is more than half of the heap: it is rebuilt from the 99 left, then 49 more are flagged
+        tasks.deleteTasks(new ArrayList<>(tasks.getTasks().subList(0, 140)));
+        assertEquals(50, manager.pendingCount());
+        assertEquals(99, manager.queuedCount());
+
+        tasks.toggleComplete(tasks.getTaskAt(0)); // Completed: cancelled too
+        check(T0.plusDays(1).minusMinutes(1)); // Every reminder is up, no deadline has passed
+        assertEquals(49, shown.size());
+        assertEquals("task 151", shown.get(0).getName());
+        assertEquals(0, manager.queuedCount());
+    }
+
+    private void start() {
+        manager = new ReminderManager(tasks, batch -> shown.addAll(batch), clock);
+    }
+
+    private void check(LocalDateTime now) {
+        clock.now = now.toInstant(ZoneOffset.UTC);
+        manager.checkTaskNotifications();
+    }
+
+    private void add(String name, LocalDateTime due, int leadMinutes) {
+        add(name, due, leadMinutes, null);
+    }
+
+    private void add(String name, LocalDateTime due, int leadMinutes, String repeat) {
+        assertTrue(tasks.addTask(name, due.format(Task.formatter), leadMinutes, repeat));
+    }
+
+    private static List<String> names(List<Task> tasks) {
+        List<String> names = new ArrayList<>();
+        for (Task task : tasks) {
+            names.add(task.getName());
+        }
+        return names;
+    }
+
+    // A clock that stands still until the test sets it
+    private static class TestClock extends Clock {
+        private Instant now;
+
+        TestClock(LocalDateTime now) {
+            this.now = now.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Shared-store mode: two instances on one directory, a write cut off mid-record, and compaction.
+class SharedTaskLogTest {
+    private static final String DUE = "2031-01-31 09:00";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void instancesSeeEachOthersChanges() throws IOException {
+        Instance a = new Instance(dir);
+        Instance b = new Instance(dir);
+        try {
+            assertTrue(a.tasks.addTask("from a", DUE));
+            b.tasks.pullSharedChanges();
+            assertEquals(Arrays.asList("from a"), names(b.tasks));
+
+            assertTrue(b.tasks.addTask("from b", DUE));
+            assertEquals(a.tasks.getTaskAt(0).getId() + 1, b.tasks.getTaskAt(1).getId()); // Ids continue after a's
+            a.tasks.pullSharedChanges();
+            assertEquals(Arrays.asList("from a", "from b"), names(a.tasks));
+
+            a.tasks.toggleComplete(a.tasks.getTaskAt(1));
+            b.tasks.deleteTask(b.tasks.getTaskAt(0)); // Catches up with the toggle first
+            assertTrue(b.tasks.getTaskAt(0).isCompleted());
+            a.tasks.pullSharedChanges();
+            assertEquals(Arrays.asList("from b"), names(a.tasks));
+            assertTrue(a.tasks.getTaskAt(0).isCompleted());
+        } finally {
+            a.close();
+            b.close();
+        }
+
+        Instance reloaded = new Instance(dir);
+        assertEquals(Arrays.asList("from b"), names(reloaded.tasks));
+        reloaded.close();
+    }
+
+    @Test
+    void unfinishedRecordAtTheEndIsCutOff() throws IOException {
+        Instance first = new Instance(dir);
+        assertTrue(first.tasks.addTask("one", DUE));
+        assertTrue(first.tasks.addTask("two", DUE));
+        Task lost = new Task(3, "never finished", LocalDateTime.of(2031, 1, 31, 9, 0));
+        first.close();
+        // A writer that died halfway through appending a record
+        byte[] record = TaskJournal.encode(TaskJournal.OP_ADD, lost);
+        Files.write(dir.resolve("shared-00000001.log"), Arrays.copyOf(record, record.length - 5),
+                StandardOpenOption.APPEND);
+
+        Instance second = new Instance(dir);
+        assertEquals(Arrays.asList("one", "two"), names(second.tasks));
+        assertTrue(second.tasks.addTask("three", DUE)); // Appended where the unfinished record was
+        second.close();
+
+        Instance third = new Instance(dir);
+        assertEquals(Arrays.asList("one", "two", "three"), names(third.tasks));
+        third.close();
+    }
+
+    @Test
+    void compactedLogReloads() throws IOException, InterruptedException {
+        Instance writer = new Instance(dir);
+        Instance reader = new Instance(dir);
+        try {
+            List<TaskRow> rows = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) { // One write of COMPACT_AFTER_RECORDS changes starts a compaction
+                rows.add(new TaskRow(i, "task " + i, DUE, i % 2 == 0));
+            }
+            writer.tasks.addTasks(rows);
+            for (int wait = 0; wait < 300 && !logFiles().equals(Arrays.asList("shared-00000002.log")); wait++) {
+                Thread.sleep(100);
+            }
+            assertEquals(Arrays.asList("shared-00000002.log"), logFiles());
+
+            assertTrue(writer.tasks.addTask("after compaction", DUE));
+            reader.tasks.pullSharedChanges(); // Moves over to the new generation
+            assertEquals(100_001, reader.tasks.getTaskCount());
+            assertEquals("after compaction", reader.tasks.getTaskAt(100_000).getName());
+        } finally {
+            writer.close();
+            reader.close();
+        }
+
+        Instance reloaded = new Instance(dir);
+        assertEquals(100_001, reloaded.tasks.getTaskCount());
+        assertEquals("task 99999", reloaded.tasks.getTaskAt(99_999).getName());
+        assertTrue(reloaded.tasks.getTaskAt(0).isCompleted());
+        assertFalse(reloaded.tasks.getTaskAt(1).isCompleted());
+        assertEquals("after compaction", reloaded.tasks.getTaskAt(100_000).getName());
+        reloaded.close();
+    }
+
+    // Log files in the directory, temporary ones included
+    private List<String> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith("shared-"))
+                    .sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> names(TaskFunctions tasks) {
+        List<String> names = new ArrayList<>();
+        for (Task task : tasks.getTasks()) {
+            names.add(task.getName());
+        }
+        return names;
+    }
+
+    // One instance of the app in shared-store mode, started as Main does
+    private static class Instance {
+        private final SharedTaskLog log;
+        private final TaskFunctions tasks;
+
+        Instance(Path dir) throws IOException {
+            log = new SharedTaskLog(dir);
+            tasks = new TaskFunctions(log.load());
+            log.attach(tasks);
+        }
+
+        void close() {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The due date order against a plain sort of the same tasks, after builds and batches of changes.
+class SortedTaskViewTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2031, 1, 31, 9, 0);
+    // Incomplete before completed, then by due date, then by id
+    private static final Comparator<Task> ORDER = Comparator.comparing(Task::isCompleted)
+            .thenComparingLong(Task::getDueMinute).thenComparingLong(Task::getId);
+
+    @Test
+    void buildSortsLikeAPlainSort() {
+        Random random = new Random(3);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            tasks.add(randomTask(random, i));
+        }
+        assertMatches(tasks, SortedTaskView.build(tasks));
+        assertMatches(new ArrayList<>(), SortedTaskView.build(new ArrayList<>()));
+    }
+
+    @Test
+    void datesTooFarApartForPackedKeysStillSort() {
+        // Over 4000 years apart: the packed (due, position) keys would overflow, so boxed positions are sorted
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(1, "far future", LocalDateTime.of(9000, 1, 1, 0, 0)));
+        tasks.add(new Task(2, "long ago", LocalDateTime.of(100, 1, 1, 0, 0)));
+        tasks.add(new Task(3, "now", DUE));
+        Task done = new Task(4, "done long ago", LocalDateTime.of(100, 1, 1, 0, 0));
+        done.setCompleted(true);
+        tasks.add(done);
+        tasks.add(new Task(5, "also now", DUE));
+
+        SortedTaskView view = SortedTaskView.build(tasks);
+        assertArrayEquals(new long[]{2, 3, 5, 1, 4}, ids(view));
+        assertMatches(tasks, view);
+    }
+
+    @Test
+    void randomChangesKeepTheOrder() {
+        Random random = new Random(11);
+        List<Task> tasks = new ArrayList<>();
+        long nextId = 1;
+        for (; nextId <= 2000; nextId++) {
+            tasks.add(randomTask(random, nextId));
+        }
+        SortedTaskView view = SortedTaskView.build(tasks);
+
+        for (int round = 0; round < 300; round++) {
+            int op = random.nextInt(4);
+            List<Task> batch = new ArrayList<>();
+            if (op == 0 || tasks.isEmpty()) { // Add
+                for (int i = random.nextInt(20); i >= 0; i--) {
+                    batch.add(randomTask(random, nextId++));
+                }
+                view.insert(batch);
+                tasks.addAll(batch);
+            } else if (op == 1) { // Delete
+                for (int i = random.nextInt(20); i >= 0 && !tasks.isEmpty(); i--) {
+                    batch.add(tasks.remove(random.nextInt(tasks.size())));
+                }
+                view.remove(batch);
+            } else { // Toggle; a recurring task moves on to its next occurrence instead
+                for (int i = random.nextInt(20); i >= 0; i--) {
+                    Task task = tasks.get(random.nextInt(tasks.size()));
+                    if (!batch.contains(task)) {
+                        batch.add(task);
+                    }
+                }
+                for (Task task : batch) { // As TaskFunctions does before the update event reaches the view
+                    if (task.isRecurring() && !task.isCompleted()) {
+                        task.moveTo(task.getRecurrence().next(task.getDueDate()));
+                    } else {
+                        task.setCompleted(!task.isCompleted());
+                    }
+                }
+                view.remove(batch);
+                view.insert(batch);
+            }
+            assertMatches(tasks, view);
+        }
+    }
+
+    @Test
+    void recurringTaskIsFoundUnderTheDateItWasSortedIn() {
+        Task weekly = new Task(1, "weekly", DUE);
+        weekly.setRecurrence(Recurrence.parse("weekly"));
+        List<Task> tasks = new ArrayList<>(Arrays.asList(weekly, new Task(2, "in between", DUE.plusDays(3))));
+        SortedTaskView view = SortedTaskView.build(tasks);
+        assertArrayEquals(new long[]{1, 2}, ids(view));
+
+        weekly.moveTo(DUE.plusWeeks(1)); // The view still has it at the old date
+        assertArrayEquals(new int[]{0}, view.remove(Arrays.asList(weekly)));
+        view.insert(Arrays.asList(weekly));
+        assertArrayEquals(new long[]{2, 1}, ids(view));
+        assertEquals(1, view.remove(Arrays.asList(weekly)).length);
+        assertEquals(0, view.remove(Arrays.asList(weekly)).length); // Gone: nothing to remove
+        assertArrayEquals(new long[]{2}, ids(view));
+    }
+
+    private static Task randomTask(Random random, long id) {
+        Task task = new Task(id, "task " + id, DUE.plusHours(random.nextInt(24 * 30))); // Many share a due date
+        task.setCompleted(random.nextInt(4) == 0);
+        if (random.nextInt(10) == 0) {
+            task.setRecurrence(Recurrence.parse("every " + (1 + random.nextInt(3)) + " days"));
+        }
+        return task;
+    }
+
+    private static void assertMatches(List<Task> tasks, SortedTaskView view) {
+        List<Task> expected = new ArrayList<>(tasks);
+        expected.sort(ORDER);
+        long[] expectedIds = new long[expected.size()];
+        int incomplete = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            expectedIds[i] = expected.get(i).getId();
+            if (!expected.get(i).isCompleted()) {
+                incomplete++;
+            }
+        }
+        assertArrayEquals(expectedIds, ids(view));
+        assertEquals(incomplete, view.getCompletedFrom());
+        long probe = Task.toEpochMinute(DUE.plusDays(10));
+        int before = 0;
+        for (Task task : expected) {
+            if (!task.isCompleted() && task.getDueMinute() < probe) {
+                before++;
+            }
+        }
+        assertEquals(before, view.firstDueAtOrAfter(probe));
+    }
+
+    private static long[] ids(SortedTaskView view) {
+        long[] ids = new long[view.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = view.idAt(i);
+        }
+        return ids;
+    }
+}
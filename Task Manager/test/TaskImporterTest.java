@@ -0,0 +1,234 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// CSV and JSON import: fields, rejected rows, files that break off, and batching.
+class TaskImporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsCsvFields() throws IOException {
+        TaskFunctions tasks = new TaskFunctions();
+        BatchResult result = new TaskImporter(tasks).importCsv(new StringReader(
+                "Pay rent,2031-01-31 09:00,no,30,every 4 weeks\r\n"
+                        + "\n"
+                        + "\"Call \"\"Bob\"\", then Ann\",2031-02-01 10:00,x\n"
+                        + "\"two\nlines\",2031-02-02 10:00\n"));
+
+        assertEquals(3, result.getAddedCount());
+        assertEquals(0, result.getErrorCount());
+        Task rent = tasks.getTaskAt(0);
+        assertEquals("Pay rent", rent.getName());
+        assertEquals(LocalDateTime.of(2031, 1, 31, 9, 0), rent.getDueDate());
+        assertEquals(30, rent.getReminderMinutes());
+        assertEquals(Recurrence.parse("every 4 weeks"), rent.getRecurrence());
+        assertFalse(rent.isCompleted());
+        assertEquals("Call \"Bob\", then Ann", tasks.getTaskAt(1).getName());
+        assertTrue(tasks.getTaskAt(1).isCompleted());
+        assertEquals("two\nlines", tasks.getTaskAt(2).getName());
+        assertEquals(Task.DEFAULT_REMINDER_MINUTES, tasks.getTaskAt(2).getReminderMinutes());
+        assertNull(tasks.getTaskAt(2).getRecurrence());
+    }
+
+    @Test
+    void csvHeaderMayReorderColumns() throws IOException {
+        TaskFunctions tasks = new TaskFunctions();
+        BatchResult result = new TaskImporter(tasks).importCsv(new StringReader(
+                "Repeat,Due,Name,Remind\n"
+                        + "daily,2031-01-31 09:00,Stretch,0\n"));
+
+        assertEquals(1, result.getAddedCount());
+        Task task = tasks.getTaskAt(0);
+        assertEquals("Stretch", task.getName());
+        assertEquals(0, task.getReminderMinutes());
+        assertEquals(Recurrence.parse("daily"), task.getRecurrence());
+    }
+
+    @Test
+    void badCsvRowsAreSkippedWithTheirLine() throws IOException {
+        TaskFunctions tasks = new TaskFunctions();
+        BatchResult result = new TaskImporter(tasks).importCsv(new StringReader(
+                "ok,2031-01-31 09:00\n"
+                        + "bad completed,2031-01-31 09:00,maybe\n"
+                        + "bad remind,2031-01-31 09:00,no,soon\n"
+                        + "bad date,31/01/2031\n"
+                        + ",2031-01-31 09:00\n"
+                        + "bad repeat,2031-01-31 09:00,no,10,every fortnight\n"
+                        + "also ok,2031-02-01 09:00\n"));
+
+        assertEquals(2, result.getAddedCount());
+        assertEquals(5, result.getErrorCount());
+        assertEquals(Arrays.asList(2L, 3L, 4L, 5L, 6L), rows(result));
+        assertEquals(Arrays.asList("ok", "also ok"), names(tasks));
+    }
+
+    @Test
+    void unterminatedQuoteStopsTheImportAndKeepsEarlierRows() throws IOException {
+        TaskFunctions tasks = new TaskFunctions();
+        BatchResult result = new TaskImporter(tasks).importCsv(new StringReader(
+                "first,2031-01-31 09:00\n"
+                        + "\"never closed,2031-01-31 09:00\n"
+                        + "lost,2031-01-31 09:00\n"));
+
+        assertEquals(1, result.getAddedCount());
+        assertEquals(1, result.getErrorCount());
+        assertEquals(2L, result.getErrors().get(0).getRow());
+        assertTrue(result.getErrors().get(0).getMessage().contains("import stopped here"));
+        assertEquals(Arrays.asList("first"), names(tasks));
+    }
+
+    @Test
+    void readsJsonObjects() throws IOException {
+        TaskFunctions tasks = new TaskFunctions();
+        BatchResult result = new TaskImporter(tasks).importJson(new StringReader(
+                "[ {\"name\": \"Pay rent\", \"due\": \"2031-01-31 09:00\", \"completed\": false, \"remind\": 30,"
+                        + " \"repeat\": \"every 4 weeks\"},\n"
+                        + "  {\"due\": \"2031-02-01 10:00\", \"tags\": [\"a\", {\"b\": 1}], \"name\": \"Say \\\"hi\\\"\\n\\u00e9\","
+                        + " \"completed\": \"yes\", \"extra\": null},\n"
+                        + "  {\"name\": \"bad remind\", \"due\": \"2031-02-01 10:00\", \"remind\": \"soon\"},\n"
+                        + "  {\"name\": \"bad completed\", \"due\": \"2031-02-01 10:00\", \"completed\": 2},\n"
+                        + "  {\"name\": \"no due\"} ]"));
+
+        assertEquals(2, result.getAddedCount());
+        assertEquals(Arrays.asList(3L, 4L, 5L), rows(result));
+        Task rent = tasks.getTaskAt(0);
+        assertEquals(30, rent.getReminderMinutes());
+        assertEquals(Recurrence.parse("every 4 weeks"), rent.getRecurrence());
+        assertEquals("Say \"hi\"\né", tasks.getTaskAt(1).getName());
+        assertTrue(tasks.getTaskAt(1).isCompleted());
+    }
+
+    @Test
+    void brokenJsonStopsTheImportAndKeepsEarlierRows() throws IOException {
+        TaskFunctions tasks = new TaskFunctions();
+        BatchResult result = new TaskImporter(tasks).importJson(new StringReader(
+                "[{\"name\": \"first\", \"due\": \"2031-01-31 09:00\"}, {\"name\": \"cut\", \"due\": "));
+
+        assertEquals(1, result.getAddedCount());
+        assertEquals(1, result.getErrorCount());
+        assertEquals(2L, result.getErrors().get(0).getRow());
+        assertEquals(Arrays.asList("first"), names(tasks));
+        assertEquals(0, new TaskImporter(tasks).importJson(new StringReader("[]")).getAddedCount());
+    }
+
+    @Test
+    void largeFilesGoInBatches() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 25_000; i++) {
+            csv.append("task ").append(i).append(",2031-01-31 09:00\n");
+        }
+        TaskFunctions tasks = new TaskFunctions();
+        BatchResult result = new TaskImporter(tasks).importCsv(new StringReader(csv.toString()));
+
+        assertEquals(25_000, result.getAddedCount());
+        assertEquals(25_000, tasks.getTaskCount());
+        assertEquals("task 24999", tasks.getTaskAt(24_999).getName());
+    }
+
+    @Test
+    void listenersGetOneEventPerBatch() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 25_000; i++) {
+            csv.append("task ").append(i).append(",2031-01-31 09:00\n");
+        }
+        TaskFunctions tasks = new TaskFunctions();
+        List<Integer> events = new ArrayList<>();
+        tasks.addTaskListener(new TaskListener() {
+            @Override
+            public void taskAdded(Task task, int index) {
+                events.add(1);
+            }
+
+            @Override
+            public void tasksAdded(List<Task> added, int[] indexes) {
+                events.add(added.size());
+            }
+
+            @Override
+            public void taskRemoved(Task task, int index) {
+            }
+
+            @Override
+            public void taskUpdated(Task task, int index) {
+            }
+        });
+        new TaskImporter(tasks).importCsv(new StringReader(csv.toString()));
+
+        assertEquals(Arrays.asList(10_000, 10_000, 5_000), events);
+    }
+
+    @Test
+    void exportedFilesImportBack() throws IOException {
+        TaskFunctions tasks = new TaskFunctions();
+        assertTrue(tasks.addTask("Pay rent, quickly", "2031-01-31 09:00", 30, "every 4 weeks"));
+        assertTrue(tasks.addTask("Say \"hi\"", "2031-02-01 10:00", 0));
+        tasks.toggleComplete(tasks.getTaskAt(1));
+
+        for (String file : new String[]{"tasks.csv", "tasks.json"}) {
+            Path path = dir.resolve(file);
+            assertEquals(2, new TaskExporter(tasks).exportFile(path));
+            TaskFunctions imported = new TaskFunctions();
+            BatchResult result = new TaskImporter(imported).importFile(path);
+            assertEquals(2, result.getAddedCount(), file);
+            assertEquals(describe(tasks), describe(imported), file);
+        }
+    }
+
+    @Test
+    void importFilePicksTheFormatByExtension() throws IOException {
+        Path json = dir.resolve("tasks.JSON");
+        Files.write(json, "[{\"name\": \"from json\", \"due\": \"2031-01-31 09:00\"}]".getBytes(StandardCharsets.UTF_8));
+        Path csv = dir.resolve("tasks.txt");
+        Files.write(csv, "from csv,2031-01-31 09:00\n".getBytes(StandardCharsets.UTF_8));
+        TaskFunctions tasks = new TaskFunctions();
+        new TaskImporter(tasks).importFile(json);
+        new TaskImporter(tasks).importFile(csv);
+
+        assertEquals(Arrays.asList("from json", "from csv"), names(tasks));
+        StringWriter out = new StringWriter();
+        new TaskExporter(tasks).exportCsv(out);
+        assertTrue(out.toString().contains("from csv"));
+    }
+
+    private static List<Long> rows(BatchResult result) {
+        List<Long> rows = new ArrayList<>();
+        for (BatchResult.RowError error : result.getErrors()) {
+            rows.add(error.getRow());
+        }
+        return rows;
+    }
+
+    private static List<String> names(TaskFunctions tasks) {
+        List<String> names = new ArrayList<>();
+        for (Task task : tasks.getTasks()) {
+            names.add(task.getName());
+        }
+        return names;
+    }
+
+    // Everything but the id, which the importing store hands out anew
+    private static List<String> describe(TaskFunctions tasks) {
+        List<String> all = new ArrayList<>();
+        for (Task task : tasks.getTasks()) {
+            all.add(task.getName() + "|" + task.getDueDate() + "|" + task.isCompleted() + "|"
+                    + task.getReminderMinutes() + "|" + task.getRecurrence());
+        }
+        return all;
+    }
+}
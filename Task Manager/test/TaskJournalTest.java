@@ -0,0 +1,169 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Journal replay, recovery from damaged files, and snapshots.
+class TaskJournalTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2031, 3, 3, 10, 0); // A Monday
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayRestoresEveryChange() throws IOException {
+        TaskJournal journal = new TaskJournal(dir);
+        TaskFunctions tasks = new TaskFunctions(journal.load());
+        journal.attach(tasks);
+        assertTrue(tasks.addTask("plain", "2031-03-03 10:00"));
+        assertTrue(tasks.addTask("no reminder", "2031-03-04 10:00", 0));
+        assertTrue(tasks.addTask("standup", "2031-03-03 09:00", 15, "weekdays"));
+        assertTrue(tasks.addTask("ünïcødé ✓", "2031-03-05 10:00"));
+        assertTrue(tasks.addTask("deleted", "2031-03-06 10:00"));
+        tasks.toggleComplete(tasks.getTaskAt(0));
+        tasks.toggleComplete(tasks.getTaskAt(2)); // Recurring: moves on to Tuesday
+        tasks.deleteTask(tasks.getTaskAt(4));
+        tasks.deleteTask(tasks.getTaskAt(1));
+        tasks.undo(); // "no reminder" goes back
+        List<String> expected = describe(tasks);
+        journal.close();
+
+        assertEquals(expected, describe(reload(false)));
+        assertEquals(4, expected.size());
+        assertTrue(expected.get(2).contains("2031-03-04T09:00"), expected.get(2));
+    }
+
+    @Test
+    void tornTailIsDroppedAndWritingGoesOnInANewFile() throws IOException {
+        byte[] first = TaskJournal.encode(TaskJournal.OP_ADD, new Task(1, "first", DUE));
+        byte[] second = TaskJournal.encode(TaskJournal.OP_ADD, new Task(2, "second", DUE));
+        byte[] torn = TaskJournal.encode(TaskJournal.OP_ADD, new Task(3, "torn", DUE));
+        Files.write(dir.resolve("journal-00000000.log"), concat(first, second, Arrays.copyOf(torn, torn.length - 5)));
+
+        TaskJournal journal = new TaskJournal(dir);
+        TaskFunctions tasks = new TaskFunctions(journal.load());
+        assertEquals(Arrays.asList("first", "second"), names(tasks));
+        journal.attach(tasks);
+        assertTrue(tasks.addTask("after the crash", "2031-03-03 11:00"));
+        journal.close();
+
+        assertTrue(Files.exists(dir.resolve("journal-00000001.log")));
+        assertEquals(Arrays.asList("first", "second", "after the crash"), names(reload(false)));
+    }
+
+    @Test
+    void checksumMismatchStopsReplay() throws IOException {
+        byte[] first = TaskJournal.encode(TaskJournal.OP_ADD, new Task(1, "first", DUE));
+        byte[] corrupt = TaskJournal.encode(TaskJournal.OP_ADD, new Task(2, "corrupt", DUE));
+        byte[] after = TaskJournal.encode(TaskJournal.OP_ADD, new Task(3, "after", DUE));
+        corrupt[corrupt.length - 1] ^= 1;
+        Files.write(dir.resolve("journal-00000000.log"), concat(first, corrupt, after));
+
+        assertEquals(Arrays.asList("first"), names(reload(false)));
+    }
+
+    @Test
+    void impossibleLengthStopsReplay() throws IOException {
+        byte[] first = TaskJournal.encode(TaskJournal.OP_ADD, new Task(1, "first", DUE));
+        byte[] bad = TaskJournal.encode(TaskJournal.OP_ADD, new Task(2, "bad", DUE));
+        ByteBuffer.wrap(bad).putInt(TaskJournal.MAX_RECORD + 1);
+        Files.write(dir.resolve("journal-00000000.log"), concat(first, bad));
+
+        assertEquals(Arrays.asList("first"), names(reload(false)));
+    }
+
+    @Test
+    void snapshotReplacesOldGenerations() throws IOException {
+        TaskJournal journal = new TaskJournal(dir);
+        TaskFunctions tasks = new TaskFunctions(journal.load());
+        journal.attach(tasks);
+        List<TaskRow> rows = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) { // Enough records for one snapshot
+            rows.add(new TaskRow(i, "bulk " + i, "2031-03-03 10:00", i % 3 == 0, i % 60, i % 1000 == 0 ? "daily" : null));
+        }
+        assertEquals(100_000, tasks.addTasks(rows).getAddedCount());
+        tasks.deleteTask(tasks.getTaskAt(5));
+        tasks.toggleComplete(tasks.getTaskAt(7));
+        assertTrue(tasks.addTask("after the snapshot", "2031-03-04 10:00"));
+        List<String> expected = describe(tasks);
+        journal.close();
+
+        assertTrue(Files.exists(dir.resolve("snapshot.bin")));
+        assertFalse(Files.exists(dir.resolve("journal-00000000.log")));
+        assertTrue(Files.exists(dir.resolve("journal-00000001.log")));
+        assertEquals(expected, describe(reload(false)));
+        assertEquals(expected, describe(reload(true)));
+    }
+
+    @Test
+    void changesToSnapshotRowsAreReplayed() throws IOException {
+        for (boolean mapped : new boolean[]{false, true}) {
+            TaskJournal journal = new TaskJournal(dir.resolve("mapped-" + mapped), mapped);
+            TaskFunctions tasks = new TaskFunctions(journal.load());
+            journal.attach(tasks);
+            List<TaskRow> rows = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                rows.add(new TaskRow(i, "bulk " + i, "2031-03-03 10:00", false, 10, i == 3 ? "weekdays" : null));
+            }
+            tasks.addTasks(rows);
+            journal.close();
+
+            journal = new TaskJournal(dir.resolve("mapped-" + mapped), mapped);
+            tasks = new TaskFunctions(journal.load());
+            journal.attach(tasks);
+            tasks.deleteTask(tasks.getTaskAt(0));
+            tasks.toggleComplete(tasks.getTaskAt(0));
+            tasks.toggleComplete(tasks.getTaskAt(2)); // The recurring row moves on
+            tasks.deleteTask(tasks.getTaskAt(10));
+            tasks.undo();
+            List<String> expected = describe(tasks);
+            journal.close();
+
+            journal = new TaskJournal(dir.resolve("mapped-" + mapped), mapped);
+            assertEquals(expected, describe(new TaskFunctions(journal.load())), "mapped " + mapped);
+        }
+    }
+
+    // ------------ Helpers ------------
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            bytes.write(part, 0, part.length);
+        }
+        return bytes.toByteArray();
+    }
+
+    private TaskFunctions reload(boolean mapped) throws IOException {
+        return new TaskFunctions(new TaskJournal(dir, mapped).load());
+    }
+
+    private static List<String> names(TaskFunctions tasks) {
+        List<String> names = new ArrayList<>();
+        for (Task task : tasks.getTasks()) {
+            names.add(task.getName());
+        }
+        return names;
+    }
+
+    private static List<String> describe(TaskFunctions tasks) {
+        List<String> all = new ArrayList<>();
+        for (Task task : tasks.getTasks()) {
+            all.add(task.getId() + "|" + task.getName() + "|" + task.getDueDate() + "|" + task.isCompleted()
+                    + "|" + task.getReminderMinutes() + "|" + task.getRecurrence());
+        }
+        return all;
+    }
+}
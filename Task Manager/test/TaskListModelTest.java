@@ -0,0 +1,235 @@
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.lang.reflect.InvocationTargetException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The list model against the store: its rows after changes on other threads reach the EDT, the list events it fires
+// on the way, the due date views and the filter.
+class TaskListModelTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2031, 1, 31, 9, 0);
+
+    private final TaskFunctions tasks = new TaskFunctions();
+
+    @Test
+    void rowsAndEventsFollowTheStore() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            assertTrue(tasks.addTask("before " + i, "2031-01-31 09:00"));
+        }
+        TaskListModel model = new TaskListModel(tasks);
+        EventMirror mirror = onEdt(() -> new EventMirror(model));
+        Random random = new Random(5);
+
+        for (int round = 0; round < 200; round++) {
+            int op = random.nextInt(6);
+            int count = tasks.getTaskCount();
+            if (op == 0 || count < 10) {
+                tasks.addTask("added " + round, "2031-02-01 10:00");
+            } else if (op == 1) {
+                tasks.deleteTask(tasks.getTaskAt(random.nextInt(count)));
+            } else if (op == 2) {
+                List<Task> batch = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    Task task = tasks.getTaskAt(random.nextInt(count));
+                    if (!batch.contains(task)) {
+                        batch.add(task);
+                    }
+                }
+                tasks.deleteTasks(batch);
+            } else if (op == 3) {
+                tasks.toggleComplete(tasks.getTaskAt(random.nextInt(count)));
+            } else if (op == 4) {
+                tasks.undo(); // Puts deleted tasks back between the others
+            } else {
+                List<TaskRow> rows = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    rows.add(new TaskRow(i, "imported " + round + "." + i, "2031-02-02 10:00", false));
+                }
+                tasks.addTasks(rows);
+            }
+            if (round % 10 == 0) {
+                assertEquals(ids(tasks.getTasks()), onEdt(() -> rows(model)));
+                assertEquals(onEdt(() -> rows(model)), onEdt(mirror::ids));
+            }
+        }
+        assertEquals(ids(tasks.getTasks()), onEdt(() -> rows(model)));
+        assertEquals(onEdt(() -> rows(model)), onEdt(mirror::ids));
+    }
+
+    @Test
+    void dueDateViewStaysSorted() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            assertTrue(tasks.addTask("task " + i, DUE.plusHours(37L * i % 100).format(Task.formatter)));
+        }
+        assertTrue(tasks.addTask("weekly", DUE.format(Task.formatter), 10, "weekly"));
+        TaskListModel model = new TaskListModel(tasks);
+        assertTrue(onEdt(() -> model.requestView(TaskListModel.View.DUE_DATE)));
+        List<Task> snapshot = tasks.getTasks();
+        assertTrue(tasks.addTask("added while sorting", DUE.minusDays(1).format(Task.formatter)));
+        SortedTaskView built = SortedTaskView.build(snapshot); // Off the EDT, as the GUI does
+        onEdt(() -> {
+            model.showSorted(built);
+            return null;
+        });
+        EventMirror mirror = onEdt(() -> new EventMirror(model));
+
+        tasks.toggleComplete(tasks.getTaskAt(2));
+        tasks.toggleComplete(tasks.findTask(31)); // The weekly task moves a week on
+        tasks.deleteTask(tasks.getTaskAt(5));
+        assertTrue(tasks.addTask("latest", DUE.plusDays(30).format(Task.formatter)));
+        tasks.undo();
+
+        List<Task> expected = new ArrayList<>(tasks.getTasks());
+        expected.sort(Comparator.comparing(Task::isCompleted).thenComparingLong(Task::getDueMinute)
+                .thenComparingLong(Task::getId));
+        assertEquals(ids(expected), onEdt(() -> rows(model)));
+        assertEquals(onEdt(() -> rows(model)), onEdt(mirror::ids));
+    }
+
+    @Test
+    void groupedViewHasAHeaderPerGroup() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(tasks.addTask("overdue", now.minusDays(2).format(Task.formatter)));
+        assertTrue(tasks.addTask("upcoming", now.plusDays(2).format(Task.formatter)));
+        assertTrue(tasks.addTask("done", now.plusDays(3).format(Task.formatter)));
+        tasks.toggleComplete(tasks.getTaskAt(2));
+        TaskListModel model = new TaskListModel(tasks);
+        assertTrue(onEdt(() -> model.requestView(TaskListModel.View.GROUPED)));
+        SortedTaskView built = SortedTaskView.build(tasks.getTasks());
+        onEdt(() -> {
+            model.showSorted(built);
+            return null;
+        });
+
+        assertEquals(Arrays.asList("Overdue (1)", "overdue", "Due today (0)", "Upcoming (1)", "upcoming",
+                "Completed (1)", "done"), onEdt(() -> labels(model)));
+        assertTrue(tasks.addTask("also overdue", now.minusDays(1).format(Task.formatter)));
+        assertEquals(Arrays.asList("Overdue (2)", "overdue", "also overdue", "Due today (0)", "Upcoming (1)",
+                "upcoming", "Completed (1)", "done"), onEdt(() -> labels(model)));
+    }
+
+    @Test
+    void filterKeepsChangesMadeWhileSearching() throws Exception {
+        assertTrue(tasks.addTask("pay rent", "2031-01-31 09:00"));
+        assertTrue(tasks.addTask("call bob", "2031-01-31 09:00"));
+        TaskListModel model = new TaskListModel(tasks);
+        onEdt(() -> {
+            model.requestFilter("PAY");
+            return null;
+        });
+        long[] matches = {tasks.getTaskAt(0).getId()}; // The search result, before the next two changes
+        assertTrue(tasks.addTask("pay phone bill", "2031-01-31 09:00"));
+        tasks.deleteTask(tasks.getTaskAt(0));
+        onEdt(() -> {
+            model.showFilter("PAY", matches);
+            return null;
+        });
+        assertEquals(Arrays.asList(tasks.getTaskAt(1).getId()), onEdt(() -> rows(model)));
+
+        assertTrue(tasks.addTask("pay taxes", "2031-01-31 09:00"));
+        assertTrue(tasks.addTask("not this", "2031-01-31 09:00"));
+        assertEquals(2, (int) onEdt(model::getSize));
+        onEdt(() -> {
+            model.requestFilter("");
+            return null;
+        });
+        assertEquals(ids(tasks.getTasks()), onEdt(() -> rows(model)));
+        assertNull(onEdt(() -> model.getGroupHeader(0)));
+        assertFalse(onEdt(() -> model.requestView(TaskListModel.View.DISPLAY_ORDER)));
+    }
+
+    // Runs on the EDT after every change queued for it so far, and returns the result.
+    private static <T> T onEdt(Supplier<T> action) throws InterruptedException, InvocationTargetException {
+        AtomicReference<T> result = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() -> result.set(action.get()));
+        return result.get();
+    }
+
+    // Task ids of the rows (header rows left out)
+    private static List<Long> rows(TaskListModel model) {
+        List<Long> ids = new ArrayList<>();
+        for (int row = 0; row < model.getSize(); row++) {
+            Task task = model.getElementAt(row);
+            if (task != null) {
+                ids.add(task.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> labels(TaskListModel model) {
+        List<String> labels = new ArrayList<>();
+        for (int row = 0; row < model.getSize(); row++) {
+            String header = model.getGroupHeader(row);
+            labels.add(header != null ? header : model.getElementAt(row).getName());
+        }
+        return labels;
+    }
+
+    private static List<Long> ids(List<Task> tasks) {
+        List<Long> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    // What a JList would hold if it only went by the events: rows are added and removed where the events say
+    private static class EventMirror implements ListDataListener {
+        private final TaskListModel model;
+        private final List<Long> rows = new ArrayList<>();
+
+        EventMirror(TaskListModel model) {
+            this.model = model;
+            for (int row = 0; row < model.getSize(); row++) {
+                rows.add(id(row));
+            }
+            model.addListDataListener(this);
+        }
+
+        List<Long> ids() {
+            List<Long> ids = new ArrayList<>(rows);
+            ids.removeIf(id -> id < 0);
+            return ids;
+        }
+
+        @Override
+        public void intervalAdded(ListDataEvent e) {
+            for (int row = e.getIndex0(); row <= e.getIndex1(); row++) {
+                rows.add(row, id(row));
+            }
+        }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) {
+            rows.subList(e.getIndex0(), e.getIndex1() + 1).clear();
+        }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) {
+            for (int row = e.getIndex0(); row <= e.getIndex1(); row++) {
+                rows.set(row, id(row));
+            }
+        }
+
+        // -1 for a header row
+        private long id(int row) {
+            Task task = model.getElementAt(row);
+            return task == null ? -1 : task.getId();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Trigram search: results against checking every name, and keeping up with adds, deletes, undo and purges.
+class TaskSearchIndexTest {
+    private static final String[] WORDS = {"pay", "rent", "call", "bob", "abc", "bcd", "abcd", "xbc", "Ünïcødé", "café"};
+
+    // Purges only run when the test says so
+    private final List<Runnable> purges = new ArrayList<>();
+
+    @Test
+    void findsWhatAScanOfEveryNameFinds() {
+        TaskFunctions tasks = new TaskFunctions();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            assertTrue(tasks.addTask(randomName(random), "2031-01-31 09:00"));
+        }
+        TaskSearchIndex index = new TaskSearchIndex(tasks, purges::add);
+
+        for (String query : new String[]{"a", "Bc", "abc", "ABCD", "bcd", "abcxbcd", "rent call", "ünï", "café", "zzz", "cd ab"}) {
+            assertArrayEquals(scan(tasks, query), index.search(query), query);
+        }
+        assertEquals(0, index.search(null).length);
+        assertEquals(0, index.search("   ").length);
+    }
+
+    @Test
+    void trigramsInTheWrongOrderAreNoMatch() {
+        TaskFunctions tasks = new TaskFunctions();
+        assertTrue(tasks.addTask("abcxbcd", "2031-01-31 09:00")); // Has every trigram of "abcd" but not "abcd"
+        assertTrue(tasks.addTask("ABCD later", "2031-01-31 09:00"));
+        TaskSearchIndex index = new TaskSearchIndex(tasks, purges::add);
+
+        assertArrayEquals(new long[]{tasks.getTaskAt(1).getId()}, index.search("abcd"));
+        assertEquals(2, index.search("bcd").length);
+    }
+
+    @Test
+    void followsAddsDeletesAndUndo() {
+        TaskFunctions tasks = new TaskFunctions();
+        assertTrue(tasks.addTask("water plants", "2031-01-31 09:00"));
+        TaskSearchIndex index = new TaskSearchIndex(tasks, purges::add);
+        assertTrue(tasks.addTask("buy plant food", "2031-01-31 09:00"));
+        assertEquals(2, index.search("plant").length);
+
+        Task food = tasks.getTaskAt(1);
+        tasks.deleteTask(food);
+        assertArrayEquals(new long[]{tasks.getTaskAt(0).getId()}, index.search("plant"));
+        assertEquals(0, index.search("food").length);
+        tasks.undo();
+        assertArrayEquals(new long[]{food.getId()}, index.search("food"));
+        assertEquals(2, index.search("pl").length); // Short queries scan the list
+        assertTrue(purges.isEmpty());
+    }
+
+    @Test
+    void purgeDropsDeletedIdsAndKeepsRestoredOnes() {
+        TaskFunctions tasks = new TaskFunctions();
+        List<TaskRow> rows = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            rows.add(new TaskRow(i, "task " + i + (i % 2 == 0 ? " even" : " odd"), "2031-01-31 09:00", false));
+        }
+        tasks.addTasks(rows);
+        TaskSearchIndex index = new TaskSearchIndex(tasks, purges::add);
+
+        List<Task> evens = new ArrayList<>();
+        for (Task task : tasks.getTasks()) {
+            if (task.getName().endsWith("even")) {
+                evens.add(task);
+            }
+        }
+        tasks.deleteTasks(evens); // 2000 dead ids: enough to start a purge
+        assertEquals(1, purges.size());
+        assertEquals(0, index.search("even").length);
+
+        tasks.undo(); // Restored while the purge is still to run
+        tasks.deleteTask(tasks.getTaskAt(1)); // "task 1 odd", deleted after the purge started
+        purges.remove(0).run();
+
+        assertEquals(2000, index.search("even").length);
+        assertArrayEquals(scan(tasks, "odd"), index.search("odd"));
+        assertArrayEquals(scan(tasks, "task 1"), index.search("task 1"));
+        assertTrue(purges.isEmpty());
+    }
+
+    @Test
+    void changesDuringTheBuildAreNotLost() throws InterruptedException {
+        TaskFunctions tasks = new TaskFunctions();
+        List<TaskRow> rows = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            rows.add(new TaskRow(i, "bulk " + i, "2031-01-31 09:00", false));
+        }
+        tasks.addTasks(rows);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                tasks.addTask("late " + i, "2031-01-31 09:00");
+                if (i % 10 == 0) {
+                    tasks.deleteTask(tasks.getTaskAt(i));
+                }
+            }
+        });
+        writer.start();
+        TaskSearchIndex index = new TaskSearchIndex(tasks, purges::add);
+        writer.join();
+
+        assertEquals(200, index.search("late").length);
+        assertArrayEquals(scan(tasks, "bulk 1"), index.search("bulk 1"));
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            name.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+
+    // Ids of every task whose name contains the query, in list order
+    private static long[] scan(TaskFunctions tasks, String query) {
+        String q = TaskSearchIndex.normalize(query);
+        return tasks.getTasks().stream().filter(task -> TaskSearchIndex.matches(task, q)).mapToLong(Task::getId).toArray();
+    }
+}
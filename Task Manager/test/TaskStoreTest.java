@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Positions in the store's id order as tasks are added, deleted and restored, and pinned copies of the list.
+class TaskStoreTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2031, 1, 31, 9, 0);
+
+    @Test
+    void restoredTasksGoBackToTheirPosition() {
+        TaskStore store = new TaskStore();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = new Task(store.newId(), "task " + i, DUE);
+            tasks.add(task);
+            assertEquals(i, store.add(task));
+        }
+        assertEquals(1, store.remove(tasks.get(1)));
+        assertEquals(2, store.remove(tasks.get(3)));
+        assertEquals(-1, store.remove(tasks.get(3)));
+        assertEquals(-1, store.indexOf(tasks.get(1)));
+        assertEquals(2, store.indexOf(tasks.get(4)));
+
+        assertEquals(2, store.add(tasks.get(3)));
+        assertEquals(1, store.add(tasks.get(1)));
+        assertEquals(-1, store.add(tasks.get(1)));
+        assertEquals(tasks, new ArrayList<>(store.frozen()));
+    }
+
+    @Test
+    void oldIdsWithoutASlotAreInsertedInOrder() {
+        TaskStore store = new TaskStore();
+        Task newer = new Task(10, "newer", DUE);
+        store.add(newer);
+        // As journal replay does for a task restored after newer ones were added
+        assertEquals(0, store.add(new Task(3, "older", DUE)));
+        Task[] batch = {new Task(7, "seven", DUE), new Task(1, "one", DUE), new Task(12, "twelve", DUE)};
+        int[] indexes = store.addAll(new ArrayList<>(Arrays.asList(batch)));
+        assertEquals(Arrays.toString(new int[]{0, 2, 4}), Arrays.toString(indexes));
+        assertEquals(Arrays.asList(1L, 3L, 7L, 10L, 12L), ids(store));
+        assertEquals(13, store.newId());
+    }
+
+    @Test
+    void positionsMatchAListAfterRandomChanges() {
+        Random random = new Random(42);
+        TaskStore store = new TaskStore();
+        TreeMap<Long, Task> expected = new TreeMap<>();
+        Map<Long, Task> everCreated = new HashMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4 || expected.isEmpty()) {
+                Task task = new Task(store.newId(), "t", DUE);
+                everCreated.put(task.getId(), task);
+                expected.put(task.getId(), task);
+                assertEquals(expected.headMap(task.getId()).size(), store.add(task));
+            } else if (op < 7) {
+                Task task = store.get(random.nextInt(store.size()));
+                assertEquals(expected.headMap(task.getId()).size(), store.remove(task));
+                expected.remove(task.getId());
+            } else if (op < 8) {
+                Task task = everCreated.get(1L + random.nextInt(everCreated.size()));
+                if (!expected.containsKey(task.getId())) {
+                    expected.put(task.getId(), task);
+                    assertEquals(expected.headMap(task.getId()).size(), store.add(task));
+                }
+            } else if (op < 9) {
+                List<Task> batch = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    Task task = everCreated.get(1L + random.nextInt(everCreated.size()));
+                    if (!expected.containsKey(task.getId())) {
+                        expected.put(task.getId(), task);
+                        batch.add(task);
+                    }
+                }
+                store.addAll(batch);
+            } else {
+                List<Task> batch = new ArrayList<>();
+                for (int i = 0; i < 5 && expected.size() > batch.size(); i++) {
+                    Task task = store.get(random.nextInt(store.size()));
+                    if (expected.remove(task.getId()) != null) {
+                        batch.add(task);
+                    }
+                }
+                store.removeAll(batch);
+            }
+            if (step % 1000 == 0) {
+                assertMatches(expected, store);
+            }
+        }
+        assertMatches(expected, store);
+    }
+
+    @Test
+    void pinnedCopyKeepsTheStateOfThatMoment() {
+        TaskStore store = new TaskStore();
+        Task plain = new Task(store.newId(), "plain", DUE);
+        Task weekly = new Task(store.newId(), "weekly", DUE);
+        weekly.setRecurrence(Recurrence.parse("weekly"));
+        store.add(plain);
+        store.add(weekly);
+        TaskStore.Frozen pinned = store.frozen().pin();
+        TaskStore.Frozen unpinned = store.frozen();
+        plain.setCompleted(true);
+        weekly.moveTo(DUE.plusWeeks(1));
+
+        long[] dues = new long[2];
+        boolean[] completed = new boolean[2];
+        pinned.copyColumns(null, dues, completed);
+        assertEquals(Task.toEpochMinute(DUE), dues[1]);
+        assertFalse(completed[0]);
+        unpinned.copyColumns(null, dues, completed);
+        assertEquals(Task.toEpochMinute(DUE.plusWeeks(1)), dues[1]);
+        assertTrue(completed[0]);
+    }
+
+    private static void assertMatches(TreeMap<Long, Task> expected, TaskStore store) {
+        assertEquals(expected.size(), store.size());
+        int index = 0;
+        for (Task task : expected.values()) {
+            assertSame(task, store.get(index));
+            assertEquals(index, store.indexOf(task));
+            index++;
+        }
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(store.frozen()));
+    }
+
+    private static List<Long> ids(TaskStore store) {
+        List<Long> ids = new ArrayList<>();
+        for (Task task : store.frozen()) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+}
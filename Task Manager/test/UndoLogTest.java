@@ -0,0 +1,183 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The undo/redo ring on its own, and undo/redo through TaskFunctions.
+class UndoLogTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2031, 3, 3, 10, 0); // A Monday
+
+    @Test
+    void undoAndRedoWalkTheRing() {
+        UndoLog log = new UndoLog();
+        assertFalse(log.canUndo());
+        assertNull(log.undo());
+        log.record(UndoLog.ADD, new long[]{1});
+        log.record(UndoLog.DELETE, new long[]{2, 3});
+        log.record(UndoLog.TOGGLE, new long[]{4}, new long[]{42});
+
+        UndoLog.Entry toggle = log.undo();
+        assertEquals(UndoLog.TOGGLE, toggle.getKind());
+        assertArrayEquals(new long[]{42}, toggle.getStates());
+        assertArrayEquals(new long[]{2, 3}, log.undo().getIds());
+        assertTrue(log.canRedo());
+        assertArrayEquals(new long[]{2, 3}, log.redo().getIds());
+        assertSame(toggle, log.redo());
+        assertFalse(log.canRedo());
+        assertNull(log.redo());
+    }
+
+    @Test
+    void newCommandForgetsRedoAndReleasesUndoneAdds() {
+        UndoLog log = new UndoLog();
+        log.record(UndoLog.ADD, new long[]{1});
+        log.undo();
+        log.bury(new Task(1, "undone add", DUE)); // What undoing the add does to the task
+        log.record(UndoLog.ADD, new long[]{2});
+
+        assertFalse(log.canRedo());
+        assertNull(log.exhume(1)); // Nothing can redo that add any more
+        assertArrayEquals(new long[]{2}, log.undo().getIds());
+        assertFalse(log.canUndo());
+    }
+
+    @Test
+    void fullRingDropsTheOldestAndItsDeletedTasks() {
+        UndoLog log = new UndoLog();
+        log.record(UndoLog.DELETE, new long[]{1});
+        Task deleted = new Task(1, "deleted first", DUE);
+        log.bury(deleted);
+        for (int i = 0; i < 99; i++) {
+            log.record(UndoLog.TOGGLE, new long[]{100 + i});
+        }
+        Task kept = new Task(2, "deleted later", DUE);
+        log.record(UndoLog.DELETE, new long[]{2}); // The 101st entry pushes out the first
+        log.bury(kept);
+
+        assertNull(log.exhume(1));
+        assertSame(kept, log.exhume(2));
+        int undone = 0;
+        while (log.undo() != null) {
+            undone++;
+        }
+        assertEquals(100, undone);
+    }
+
+    @Test
+    void extendGrowsTheNewestEntryOnly() {
+        UndoLog log = new UndoLog();
+        UndoLog.Entry entry = log.record(UndoLog.ADD, new long[]{1, 2});
+        assertTrue(log.extend(entry, new long[]{3}));
+        assertArrayEquals(new long[]{1, 2, 3}, entry.getIds());
+
+        log.record(UndoLog.TOGGLE, new long[]{1});
+        assertFalse(log.extend(entry, new long[]{4})); // Something came in between
+        log.undo();
+        assertFalse(log.extend(entry, new long[]{4})); // The toggle is undone, but it could still be redone
+        log.undo();
+        assertFalse(log.extend(entry, new long[]{4})); // The entry itself is undone
+        assertArrayEquals(new long[]{1, 2, 3}, log.redo().getIds());
+    }
+
+    @Test
+    void importIsUndoneInOneStep() throws IOException {
+        TaskFunctions tasks = new TaskFunctions();
+        assertTrue(tasks.addTask("before", "2031-03-03 10:00"));
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) { // Two batches
+            csv.append("imported ").append(i).append(",2031-03-03 10:00\n");
+        }
+        assertEquals(20_000, new TaskImporter(tasks).importCsv(new StringReader(csv.toString())).getAddedCount());
+        assertEquals(20_001, tasks.getTaskCount());
+
+        tasks.undo();
+        assertEquals(Arrays.asList("before"), names(tasks));
+        tasks.redo();
+        assertEquals(20_001, tasks.getTaskCount());
+        tasks.undo();
+        tasks.undo(); // Then the add before the import
+        assertEquals(0, tasks.getTaskCount());
+    }
+
+    @Test
+    void commandBetweenBatchesStartsANewEntry() {
+        TaskFunctions tasks = new TaskFunctions();
+        TaskFunctions.BulkAdd bulk = tasks.startBulkAdd();
+        bulk.addTasks(Arrays.asList(new TaskRow(1, "first batch", "2031-03-03 10:00", false)));
+        assertTrue(tasks.addTask("in between", "2031-03-03 10:00"));
+        bulk.addTasks(Arrays.asList(new TaskRow(2, "second batch", "2031-03-03 10:00", false)));
+
+        assertTrue(tasks.undo());
+        assertEquals(Arrays.asList("first batch", "in between"), names(tasks));
+        assertTrue(tasks.undo());
+        assertTrue(tasks.undo());
+        assertEquals(0, tasks.getTaskCount());
+        assertFalse(tasks.undo()); // Reported as nothing done
+        assertTrue(tasks.redo());
+        assertTrue(tasks.redo());
+        assertTrue(tasks.redo());
+        assertFalse(tasks.redo());
+        assertEquals(Arrays.asList("first batch", "in between", "second batch"), names(tasks));
+    }
+
+    @Test
+    void bulkDeleteUndoesInOneStepAndKeepsPositions() {
+        TaskFunctions tasks = new TaskFunctions();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(tasks.addTask("task " + i, "2031-03-0" + (i % 9 + 1) + " 10:00"));
+        }
+        List<String> before = names(tasks);
+        tasks.deleteTasks(Arrays.asList(tasks.getTaskAt(1), tasks.getTaskAt(4), tasks.getTaskAt(9)));
+        assertEquals(7, tasks.getTaskCount());
+
+        tasks.undo();
+        assertEquals(before, names(tasks));
+        tasks.redo();
+        assertEquals(7, tasks.getTaskCount());
+        assertFalse(names(tasks).contains("task 4"));
+        tasks.undo();
+        tasks.undo(); // Then the last add
+        assertEquals(before.subList(0, 9), names(tasks));
+        tasks.redo();
+        assertEquals(before, names(tasks));
+    }
+
+    @Test
+    void toggleOfARecurringTaskSwapsItsOccurrence() {
+        TaskFunctions tasks = new TaskFunctions();
+        assertTrue(tasks.addTask("standup", "2031-03-03 09:00", 10, "weekdays until 2031-03-04 09:00"));
+        tasks.toggleComplete(tasks.getTaskAt(0));
+        assertEquals(DUE.withHour(9).plusDays(1), tasks.getTaskAt(0).getDueDate());
+        assertFalse(tasks.getTaskAt(0).isCompleted());
+        tasks.toggleComplete(tasks.getTaskAt(0)); // The last occurrence: now the series is done
+        assertTrue(tasks.getTaskAt(0).isCompleted());
+
+        tasks.undo();
+        assertFalse(tasks.getTaskAt(0).isCompleted());
+        assertEquals(DUE.withHour(9).plusDays(1), tasks.getTaskAt(0).getDueDate());
+        tasks.undo();
+        assertEquals(DUE.withHour(9), tasks.getTaskAt(0).getDueDate());
+        tasks.redo();
+        tasks.redo();
+        assertTrue(tasks.getTaskAt(0).isCompleted());
+    }
+
+    private static List<String> names(TaskFunctions tasks) {
+        List<String> names = new ArrayList<>();
+        for (Task task : tasks.getTasks()) {
+            names.add(task.getName());
+        }
+        return names;
+    }
+}